@@ -1,9 +1,23 @@
 package dev.fluffyworld.nxbrokenitems;
 
 import dev.fluffyworld.nxbrokenitems.commands.NxBrokenItemsCommand;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.PersistenceExecutor;
+import dev.fluffyworld.nxbrokenitems.data.PlayerDataCache;
+import dev.fluffyworld.nxbrokenitems.data.RetentionPolicy;
+import dev.fluffyworld.nxbrokenitems.data.RetentionSweeper;
+import dev.fluffyworld.nxbrokenitems.logging.AuditLog;
+import dev.fluffyworld.nxbrokenitems.scheduler.TaskScheduler;
+import dev.fluffyworld.nxbrokenitems.storage.BrokenItemRepository;
+import dev.fluffyworld.nxbrokenitems.storage.ChangeSet;
+import dev.fluffyworld.nxbrokenitems.storage.FileBrokenItemRepository;
+import dev.fluffyworld.nxbrokenitems.storage.SqliteBrokenItemRepository;
+import dev.fluffyworld.nxbrokenitems.storage.StorageException;
+import dev.fluffyworld.nxbrokenitems.storage.StorageFormat;
 import dev.fluffyworld.nxbrokenitems.listeners.ItemBreakListener;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import dev.fluffyworld.nxbrokenitems.listeners.PlayerConnectionListener;
+import dev.fluffyworld.nxbrokenitems.listeners.components.BreakPipeline;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -11,30 +25,78 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public final class NxBrokenItems extends JavaPlugin {
 
     private static final String DATA_USER_FOLDER = "dataUser";
-    private static final String LOG_RECOVERY_FILE = "log-recovery.yml";
-    private static final String LOG_DELETE_FILE = "log-item-delete.yml";
-    private static final String RESTORE_ITEM_SECTION = "restoreItem";
+
+    private volatile PluginSettings settings;
+    private TaskScheduler taskScheduler;
+    private PersistenceExecutor persistenceExecutor;
+    private AuditLog auditLog;
+    private BrokenItemRepository repository;
+    private PlayerDataCache dataCache;
+    private PlayerConnectionListener connectionListener;
+    private volatile RetentionPolicy retentionPolicy;
+    private RetentionSweeper retentionSweeper;
+    private BreakPipeline breakPipeline;
 
     @Override
     public void onEnable() {
-        getServer().getPluginManager().registerEvents(new ItemBreakListener(this), this);
+        saveDefaultConfig();
+        settings = PluginSettings.compile(getConfig(), getLogger());
+        taskScheduler = TaskScheduler.create(this);
+        initializePluginFiles();
+        persistenceExecutor = new PersistenceExecutor(getLogger());
+        auditLog = new AuditLog(new File(getDataFolder(), getConfig().getString("logging.directory", "logs")),
+            getLogger(), getConfig().getLong("logging.sync-interval-ms", 1000L));
+        taskScheduler.runAsyncTimer(auditLog::compressOldSegments, 20L * 60L, 20L * 60L * 60L);
+        repository = createRepository();
+        dataCache = new PlayerDataCache(this, repository, persistenceExecutor);
+        dataCache.start();
+        retentionPolicy = RetentionPolicy.fromConfig(getConfig(), getLogger());
+        retentionSweeper = new RetentionSweeper(this, repository, retentionPolicy);
+        retentionSweeper.start();
+
+        connectionListener = new PlayerConnectionListener(this);
+        getServer().getPluginManager().registerEvents(connectionListener, this);
+        breakPipeline = new BreakPipeline(this);
+        breakPipeline.start();
+        connectionListener.registerStateHolder(breakPipeline);
+        final ItemBreakListener itemBreakListener = new ItemBreakListener(this, breakPipeline);
+        getServer().getPluginManager().registerEvents(itemBreakListener, this);
+        connectionListener.registerStateHolder(itemBreakListener);
         final NxBrokenItemsCommand commandExecutor = new NxBrokenItemsCommand(this);
         Objects.requireNonNull(getCommand("nxbrokenitems"), "Command 'nxbrokenitems' not found")
             .setExecutor(commandExecutor);
         getCommand("nxbrokenitems").setTabCompleter(commandExecutor);
-        saveDefaultConfig();
-        initializePluginFiles();
 
         getLogger().info("NxBrokenItems has been enabled successfully!");
     }
 
     @Override
     public void onDisable() {
+        if (retentionSweeper != null) {
+            retentionSweeper.stop();
+        }
+        if (breakPipeline != null) {
+            breakPipeline.stop();
+        }
+        if (dataCache != null) {
+            dataCache.shutdown();
+        }
+        if (persistenceExecutor != null) {
+            persistenceExecutor.shutdown(
+                getConfig().getLong("storage.shutdown-timeout-seconds", 10L), TimeUnit.SECONDS);
+        }
+        if (repository != null) {
+            repository.close();
+        }
+        if (auditLog != null) {
+            auditLog.close(getConfig().getLong("storage.shutdown-timeout-seconds", 10L), TimeUnit.SECONDS);
+        }
         getLogger().info("NxBrokenItems has been disabled!");
     }
 
@@ -43,8 +105,83 @@ public final class NxBrokenItems extends JavaPlugin {
      */
     private void initializePluginFiles() {
         createDataUserDirectory();
-        createLogFile(LOG_RECOVERY_FILE);
-        createLogFile(LOG_DELETE_FILE);
+    }
+
+    /**
+     * Create the storage backend selected in the config, falling back to files if SQLite cannot be opened
+     * or the dataUser files cannot be imported into it
+     */
+    private BrokenItemRepository createRepository() {
+        final String backend = getConfig().getString("storage.backend", "file");
+        if ("sqlite".equalsIgnoreCase(backend)) {
+            final File databaseFile = new File(getDataFolder(),
+                getConfig().getString("storage.sqlite-file", "broken-items.db"));
+            SqliteBrokenItemRepository sqliteRepository = null;
+            try {
+                sqliteRepository = new SqliteBrokenItemRepository(databaseFile, getLogger(),
+                    item -> getSettings().analyze(item));
+                importFileStorage(sqliteRepository);
+                getLogger().info("Using SQLite storage: " + databaseFile.getName());
+                return sqliteRepository;
+            } catch (StorageException e) {
+                if (sqliteRepository != null) {
+                    sqliteRepository.close();
+                }
+                getLogger().log(Level.SEVERE, "Failed to open SQLite storage, falling back to files", e);
+            }
+        }
+
+        final FileBrokenItemRepository fileRepository = createFileRepository();
+        fileRepository.startLayoutMigration(getConfig().getInt("storage.migration-threads", 4));
+        return fileRepository;
+    }
+
+    private FileBrokenItemRepository createFileRepository() {
+        return new FileBrokenItemRepository(
+            new File(getDataFolder(), DATA_USER_FOLDER), getLogger(),
+            StorageFormat.fromConfig(getConfig().getString("storage.format", "yaml")),
+            item -> getSettings().analyze(item),
+            getConfig().getBoolean("storage.journal.enabled", true),
+            getConfig().getLong("storage.journal.compact-threshold-kb", 64L) * 1024L,
+            !"flat".equalsIgnoreCase(getConfig().getString("storage.layout", "sharded")));
+    }
+
+    /**
+     * Copy every player's dataUser files into a new, empty SQLite database, so switching backends keeps
+     * stored items. Imported files are renamed so they are never imported again.
+     * If any player fails, the database is emptied again and the files are left untouched.
+     */
+    private void importFileStorage(SqliteBrokenItemRepository target) throws StorageException {
+        if (!target.listPlayers().isEmpty()) {
+            return;
+        }
+        final FileBrokenItemRepository source = createFileRepository();
+        final Set<UUID> players = source.listPlayers();
+        if (players.isEmpty()) {
+            return;
+        }
+
+        getLogger().info("Importing " + players.size() + " players from " + DATA_USER_FOLDER + " into SQLite");
+        final long start = System.currentTimeMillis();
+        try {
+            for (UUID playerUUID : players) {
+                final List<BrokenItemEntry> entries = source.list(playerUUID);
+                target.apply(playerUUID, new ChangeSet(entries, Collections.emptySet(), entries));
+            }
+        } catch (StorageException e) {
+            target.clear();
+            throw new StorageException("Failed to import " + DATA_USER_FOLDER + " into SQLite, the files were kept", e);
+        }
+
+        for (UUID playerUUID : players) {
+            try {
+                source.markImported(playerUUID);
+            } catch (StorageException e) {
+                getLogger().log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+        getLogger().info("Imported " + players.size() + " players into SQLite in "
+            + (System.currentTimeMillis() - start) + " ms");
     }
 
     /**
@@ -63,112 +200,98 @@ public final class NxBrokenItems extends JavaPlugin {
     }
 
     /**
-     * Create a log file if it doesn't exist
+     * Reload config.yml from disk and swap in a freshly compiled settings snapshot and retention policy
      */
-    private void createLogFile(String fileName) {
-        final File logFile = new File(getDataFolder(), fileName);
-        if (!logFile.exists()) {
-            try {
-                if (logFile.createNewFile()) {
-                    final FileConfiguration logConfig = YamlConfiguration.loadConfiguration(logFile);
-                    logConfig.set("logs", new ArrayList<String>());
-                    logConfig.save(logFile);
-                    getLogger().info("Created " + fileName);
-                }
-            } catch (IOException e) {
-                getLogger().log(Level.SEVERE, "Failed to create " + fileName, e);
-            }
+    public void reloadSettings() {
+        reloadConfig();
+        settings = PluginSettings.compile(getConfig(), getLogger());
+        retentionPolicy = RetentionPolicy.fromConfig(getConfig(), getLogger());
+        if (retentionSweeper != null) {
+            retentionSweeper.stop();
         }
+        retentionSweeper = new RetentionSweeper(this, repository, retentionPolicy);
+        retentionSweeper.start();
     }
 
     /**
-     * Get the data configuration for a specific player
+     * Get the scheduler for the running server, region aware on Folia
      * 
-     * @param playerUUID The UUID of the player
-     * @return The FileConfiguration or null if file doesn't exist
+     * @return The task scheduler
      */
-    public FileConfiguration getDataConfig(UUID playerUUID) {
-        final File playerDataFile = getPlayerDataFile(playerUUID);
-        if (!playerDataFile.exists()) {
-            return null;
-        }
-        return YamlConfiguration.loadConfiguration(playerDataFile);
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
     }
 
     /**
-     * Save data file for a specific player
+     * Get the settings compiled from the current config
      * 
-     * @param playerUUID The UUID of the player
-     * @param dataConfig The FileConfiguration to save
+     * @return The settings snapshot
      */
-    public void saveDataFile(UUID playerUUID, FileConfiguration dataConfig) {
-        final File playerDataFile = getPlayerDataFile(playerUUID);
-        try {
-            dataConfig.save(playerDataFile);
-        } catch (IOException e) {
-            getLogger().log(Level.SEVERE, 
-                "Failed to save data file for player: " + playerUUID, e);
-        }
+    public PluginSettings getSettings() {
+        return settings;
     }
 
     /**
-     * Create a data file for a specific player
+     * Get the cache holding every loaded player's broken items
      * 
-     * @param playerUUID The UUID of the player
-     * @return The created FileConfiguration
+     * @return The player data cache
      */
-    public FileConfiguration createDataFile(UUID playerUUID) {
-        final File playerDataFile = getPlayerDataFile(playerUUID);
-        
-        if (!playerDataFile.exists()) {
-            try {
-                final File parentDir = playerDataFile.getParentFile();
-                if (parentDir != null && !parentDir.exists()) {
-                    parentDir.mkdirs();
-                }
-                
-                if (playerDataFile.createNewFile()) {
-                    getLogger().info("Created data file for player: " + playerUUID);
-                }
-            } catch (IOException e) {
-                getLogger().log(Level.SEVERE, 
-                    "Failed to create data file for player: " + playerUUID, e);
-            }
-        }
-        
-        return YamlConfiguration.loadConfiguration(playerDataFile);
+    public PlayerDataCache getDataCache() {
+        return dataCache;
     }
 
     /**
-     * Reload the data file for a specific player
+     * Get the executor that runs disk writes off the server thread
      * 
-     * @param playerUUID The UUID of the player
+     * @return The persistence executor
      */
-    public void reloadDataFile(UUID playerUUID) {
-        final File playerDataFile = getPlayerDataFile(playerUUID);
-        
-        if (playerDataFile.exists()) {
-            final FileConfiguration dataConfig = YamlConfiguration.loadConfiguration(playerDataFile);
-            try {
-                dataConfig.load(playerDataFile);
-                getLogger().info("Reloaded data file for player: " + playerUUID);
-            } catch (Exception e) {
-                getLogger().log(Level.SEVERE, 
-                    "Failed to reload data file for player: " + playerUUID, e);
-            }
-        } else {
-            createDataFile(playerUUID);
-        }
+    public PersistenceExecutor getPersistenceExecutor() {
+        return persistenceExecutor;
+    }
+
+    /**
+     * Get the daily recovery and deletion log
+     * 
+     * @return The audit log
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Get the limits on how many broken items a player keeps
+     * 
+     * @return The retention policy
+     */
+    public RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Get the listener that tracks joins, quits and per-player state
+     * 
+     * @return The player connection listener
+     */
+    public PlayerConnectionListener getConnectionListener() {
+        return connectionListener;
+    }
+
+    /**
+     * Get the queue broken items are saved from
+     * 
+     * @return The break pipeline
+     */
+    public BreakPipeline getBreakPipeline() {
+        return breakPipeline;
     }
 
     /**
-     * Get the player data file
+     * Reload the data file for a specific player
      * 
      * @param playerUUID The UUID of the player
-     * @return The player's data file
      */
-    private File getPlayerDataFile(UUID playerUUID) {
-        return new File(getDataFolder(), 
-            DATA_USER_FOLDER + File.separator + playerUUID + ".yml");
+    public void reloadDataFile(UUID playerUUID) {
+        dataCache.reload(playerUUID);
+        getLogger().info("Reloaded data file for player: " + playerUUID);
     }
 }
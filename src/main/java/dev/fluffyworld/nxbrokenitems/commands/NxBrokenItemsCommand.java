@@ -1,8 +1,9 @@
 package dev.fluffyworld.nxbrokenitems.commands;
 
 import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
 import dev.fluffyworld.nxbrokenitems.gui.BrokenItemsGUI;
-import dev.fluffyworld.nxbrokenitems.utils.MessageUtils;
+import dev.fluffyworld.nxbrokenitems.logging.AuditLog;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -12,14 +13,19 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter {
 
-    private static final List<String> SUBCOMMANDS = Arrays.asList("restore", "reload");
+    private static final List<String> SUBCOMMANDS = Arrays.asList("restore", "reload", "stats", "logs");
     private static final String PERMISSION_RESTORE = "nxbrokenitems.restore";
     private static final String PERMISSION_RELOAD = "nxbrokenitems.reload";
+    private static final String PERMISSION_STATS = "nxbrokenitems.stats";
+    private static final String PERMISSION_LOGS = "nxbrokenitems.logs";
+    private static final Object LOG_QUERY_KEY = "audit-log-query";
 
     private final NxBrokenItems plugin;
     private BrokenItemsGUI brokenItemsGUI;
@@ -46,28 +52,30 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
         }
 
         if (args.length == 0) {
-            sendMessage(player, "messages.usage");
+            sendMessage(player, "usage");
             return true;
         }
 
         final String subCommand = args[0].toLowerCase();
         
         return switch (subCommand) {
-            case "restore" -> handleRestoreCommand(player);
+            case "restore" -> handleRestoreCommand(player, args);
             case "reload" -> handleReloadCommand(player);
+            case "stats" -> handleStatsCommand(player);
+            case "logs" -> handleLogsCommand(player, args);
             default -> {
-                sendMessage(player, "messages.usage");
+                sendMessage(player, "usage");
                 yield true;
             }
         };
     }
 
     /**
-     * Handle the restore subcommand
+     * Handle the restore subcommand: /nb restore [all]
      */
-    private boolean handleRestoreCommand(Player player) {
+    private boolean handleRestoreCommand(Player player, String[] args) {
         if (!player.hasPermission(PERMISSION_RESTORE)) {
-            sendMessage(player, "messages.no-permission");
+            sendMessage(player, "no-permission");
             return true;
         }
 
@@ -76,7 +84,11 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
             return true;
         }
 
-        brokenItemsGUI.openInventory(player);
+        if (args.length > 1 && args[1].equalsIgnoreCase("all")) {
+            brokenItemsGUI.restoreAll(player);
+        } else {
+            brokenItemsGUI.openInventory(player);
+        }
         return true;
     }
 
@@ -85,7 +97,7 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
      */
     private boolean handleReloadCommand(Player player) {
         if (!player.hasPermission(PERMISSION_RELOAD)) {
-            sendMessage(player, "messages.no-permission");
+            sendMessage(player, "no-permission");
             return true;
         }
 
@@ -93,19 +105,127 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
         return true;
     }
 
+    /**
+     * Handle the stats subcommand
+     */
+    private boolean handleStatsCommand(Player player) {
+        if (!player.hasPermission(PERMISSION_STATS)) {
+            sendMessage(player, "no-permission");
+            return true;
+        }
+
+        sendMessage(player, "stats-header");
+        final String lineFormat = plugin.getSettings().getMessage("stats-line");
+        plugin.getConnectionListener().getLiveStateCounts().forEach((name, count) ->
+            player.sendMessage(lineFormat
+                .replace("{name}", name)
+                .replace("{count}", String.valueOf(count))));
+        plugin.getBreakPipeline().getStats().forEach((name, count) ->
+            player.sendMessage(lineFormat
+                .replace("{name}", name)
+                .replace("{count}", String.valueOf(count))));
+        return true;
+    }
+
+    /**
+     * Handle the logs subcommand: /nb logs <player> [from] [to] [restored|deleted]
+     */
+    private boolean handleLogsCommand(Player player, String[] args) {
+        if (!player.hasPermission(PERMISSION_LOGS)) {
+            sendMessage(player, "no-permission");
+            return true;
+        }
+
+        final AuditLog.Query query = parseLogQuery(args);
+        if (query == null) {
+            sendMessage(player, "logs-usage");
+            return true;
+        }
+
+        final PluginSettings settings = plugin.getSettings();
+        final int maxLines = Math.max(1, plugin.getConfig().getInt("logging.query-max-lines", 100));
+        final String lineFormat = settings.getMessage("logs-line");
+        player.sendMessage(settings.getMessage("logs-searching").replace("{player}", query.playerName()));
+
+        plugin.getPersistenceExecutor().submit(LOG_QUERY_KEY, () -> {
+            final List<String> lines = new ArrayList<>();
+            final int found = plugin.getAuditLog().query(query, maxLines, line ->
+                lines.add(lineFormat.replace("{line}", line)));
+
+            plugin.getTaskScheduler().runForEntity(player, () -> {
+                if (!player.isOnline()) {
+                    return;
+                }
+                if (found == 0) {
+                    player.sendMessage(settings.getMessage("logs-none").replace("{player}", query.playerName()));
+                    return;
+                }
+                lines.forEach(player::sendMessage);
+                player.sendMessage(settings.getMessage("logs-footer")
+                    .replace("{count}", String.valueOf(found))
+                    .replace("{limited}", found >= maxLines ? " (limit reached)" : ""));
+            }, () -> {
+            });
+        });
+        return true;
+    }
+
+    /**
+     * Parse the arguments after "logs", dates default to the last 30 days
+     *
+     * @return The query, or null if the arguments are invalid
+     */
+    private AuditLog.Query parseLogQuery(String[] args) {
+        if (args.length < 2 || args.length > 5) {
+            return null;
+        }
+
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(30);
+        String action = null;
+        int dateIndex = 0;
+        for (int i = 2; i < args.length; i++) {
+            final String arg = args[i].toLowerCase();
+            if (arg.equals(AuditLog.ACTION_RESTORED) || arg.equals(AuditLog.ACTION_DELETED)) {
+                action = arg;
+                continue;
+            }
+            try {
+                final LocalDate date = LocalDate.parse(arg);
+                switch (dateIndex++) {
+                    case 0 -> from = date;
+                    case 1 -> to = date;
+                    default -> {
+                        return null;
+                    }
+                }
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        if (dateIndex == 1 && from.isAfter(to)) {
+            to = from;
+        }
+        return from.isAfter(to) ? null : new AuditLog.Query(args[1], from, to, action);
+    }
+
     /**
      * Reload plugin configuration and player data
      */
     private void reloadPlugin(Player player) {
         final UUID playerUUID = player.getUniqueId();
         plugin.reloadDataFile(playerUUID);
-        plugin.reloadConfig();
+        plugin.reloadSettings();
         
         if (economy != null) {
+            if (brokenItemsGUI != null) {
+                brokenItemsGUI.unregister();
+            }
             brokenItemsGUI = new BrokenItemsGUI(plugin, economy);
         }
         
-        sendMessage(player, "messages.reload-success");
+        sendMessage(player, "reload-success");
         plugin.getLogger().info("Configuration reloaded by " + player.getName());
     }
 
@@ -122,6 +242,20 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
                 .collect(Collectors.toList());
         }
 
+        if (args.length == 2 && args[0].equalsIgnoreCase("restore") && player.hasPermission(PERMISSION_RESTORE)) {
+            return "all".startsWith(args[1].toLowerCase()) ? List.of("all") : Collections.emptyList();
+        }
+
+        if (args[0].equalsIgnoreCase("logs") && player.hasPermission(PERMISSION_LOGS)) {
+            final String prefix = args[args.length - 1].toLowerCase();
+            final List<String> options = args.length == 2
+                ? Bukkit.getOnlinePlayers().stream().map(Player::getName).collect(Collectors.toList())
+                : Arrays.asList(AuditLog.ACTION_RESTORED, AuditLog.ACTION_DELETED);
+            return options.stream()
+                .filter(option -> option.toLowerCase().startsWith(prefix))
+                .collect(Collectors.toList());
+        }
+
         return Collections.emptyList();
     }
 
@@ -132,6 +266,8 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
         return switch (subCommand) {
             case "restore" -> player.hasPermission(PERMISSION_RESTORE);
             case "reload" -> player.hasPermission(PERMISSION_RELOAD);
+            case "stats" -> player.hasPermission(PERMISSION_STATS);
+            case "logs" -> player.hasPermission(PERMISSION_LOGS);
             default -> false;
         };
     }
@@ -153,10 +289,10 @@ public final class NxBrokenItemsCommand implements CommandExecutor, TabCompleter
     /**
      * Send a message to the player from config
      */
-    private void sendMessage(Player player, String path) {
-        final String message = plugin.getConfig().getString(path);
-        if (message != null && !message.isEmpty()) {
-            player.sendMessage(MessageUtils.colorize(message));
+    private void sendMessage(Player player, String key) {
+        final String message = plugin.getSettings().getMessage(key);
+        if (!message.isEmpty()) {
+            player.sendMessage(message);
         }
     }
 }
@@ -0,0 +1,96 @@
+package dev.fluffyworld.nxbrokenitems.config;
+
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.RestorationQuote;
+import org.bukkit.Material;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Restoration pricing compiled into an ordered rule table, each rule replacing the cost of the one before:
+ * the first matching material-costs entry or the default cost, then advanced-enchantment-cost,
+ * then the item's unbreaking tier, and finally the item's cost multiplier.
+ * Quotes are memoized by item fingerprint for the lifetime of the settings snapshot,
+ * so a reload starts with an empty memo.
+ */
+public final class CostRules {
+
+    private static final int MAX_QUOTES = 10000;
+
+    /**
+     * A material-costs entry, with the pattern it was configured under
+     */
+    record MaterialCost(String pattern, int cost) {
+    }
+
+    private final Map<Material, MaterialCost> materialCosts;
+    private final int defaultCost;
+    private final int advancedEnchantmentCost;
+    private final int[] unbreakingCosts;
+    private final Map<ItemFingerprint, RestorationQuote> quotes = new ConcurrentHashMap<>();
+
+    CostRules(Map<Material, MaterialCost> materialCosts, int defaultCost, int advancedEnchantmentCost,
+              int[] unbreakingCosts) {
+        this.materialCosts = materialCosts;
+        this.defaultCost = defaultCost;
+        this.advancedEnchantmentCost = advancedEnchantmentCost;
+        this.unbreakingCosts = unbreakingCosts;
+    }
+
+    /**
+     * Quote an item, evaluating the rules only the first time its fingerprint is seen
+     *
+     * @param profile Supplies the item's profile, only called when the quote is not memoized yet
+     */
+    public RestorationQuote quote(ItemFingerprint fingerprint, Material type, Supplier<ItemProfile> profile) {
+        final RestorationQuote cached = quotes.get(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        final RestorationQuote quote = evaluate(type, profile.get());
+        // Fingerprints of every player pass through here, start over rather than grow without bound
+        if (quotes.size() >= MAX_QUOTES) {
+            quotes.clear();
+        }
+        quotes.put(fingerprint, quote);
+        return quote;
+    }
+
+    /**
+     * Run the rules for an item without memoizing the result
+     */
+    public RestorationQuote evaluate(Material type, ItemProfile profile) {
+        final MaterialCost materialCost = materialCosts.get(type);
+        int cost = materialCost != null ? materialCost.cost() : defaultCost;
+        String rule = materialCost != null
+            ? "material-costs." + materialCost.pattern()
+            : "default-cost-without-unbreaking";
+
+        if (profile.advancedEnchantment()) {
+            cost = advancedEnchantmentCost;
+            rule = "advanced-enchantment-cost";
+        }
+
+        final int level = profile.unbreakingLevel();
+        if (level > 0 && level <= unbreakingCosts.length && unbreakingCosts[level - 1] >= 0) {
+            cost = unbreakingCosts[level - 1];
+            rule = "costs (unbreaking " + level + ")";
+        }
+
+        if (profile.costMultiplierKey() != null) {
+            rule += " x cost-multipliers." + profile.costMultiplierKey();
+        }
+        return new RestorationQuote((int) (cost * profile.costMultiplier()), rule);
+    }
+
+    /**
+     * Get the number of memoized quotes
+     */
+    public int getQuoteCount() {
+        return quotes.size();
+    }
+}
@@ -0,0 +1,144 @@
+package dev.fluffyworld.nxbrokenitems.config;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over a fixed list of substrings.
+ * One scan of a text reports every pattern it contains, however many patterns there are.
+ */
+public final class KeyPatternMatcher {
+
+    private static final int ASCII = 128;
+
+    private final int[] alphabet;
+    private final Map<Character, Integer> extendedAlphabet;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final int patternCount;
+
+    private KeyPatternMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+        this.alphabet = new int[ASCII];
+        Arrays.fill(alphabet, -1);
+        this.extendedAlphabet = new HashMap<>();
+
+        int symbols = 0;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                final char c = pattern.charAt(i);
+                if (c < ASCII) {
+                    if (alphabet[c] < 0) {
+                        alphabet[c] = symbols++;
+                    }
+                } else if (!extendedAlphabet.containsKey(c)) {
+                    extendedAlphabet.put(c, symbols++);
+                }
+            }
+        }
+        this.alphabetSize = Math.max(1, symbols);
+
+        // Build the trie
+        final List<int[]> trie = new ArrayList<>();
+        final List<List<Integer>> nodeOutputs = new ArrayList<>();
+        trie.add(newNode());
+        nodeOutputs.add(new ArrayList<>());
+        for (int patternIndex = 0; patternIndex < patterns.size(); patternIndex++) {
+            final String pattern = patterns.get(patternIndex);
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                final int symbol = symbolOf(pattern.charAt(i));
+                if (trie.get(node)[symbol] < 0) {
+                    trie.get(node)[symbol] = trie.size();
+                    trie.add(newNode());
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = trie.get(node)[symbol];
+            }
+            nodeOutputs.get(node).add(patternIndex);
+        }
+
+        // Turn it into a full transition table, following failure links breadth first
+        final int nodes = trie.size();
+        this.transitions = new int[nodes * alphabetSize];
+        final int[] failure = new int[nodes];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            final int child = trie.get(0)[symbol];
+            transitions[symbol] = Math.max(child, 0);
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(failure[node]));
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                final int child = trie.get(node)[symbol];
+                final int fallback = transitions[failure[node] * alphabetSize + symbol];
+                if (child < 0) {
+                    transitions[node * alphabetSize + symbol] = fallback;
+                } else {
+                    transitions[node * alphabetSize + symbol] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        this.outputs = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            outputs[node] = nodeOutputs.get(node).stream().mapToInt(Integer::intValue).distinct().toArray();
+        }
+    }
+
+    /**
+     * Compile a matcher, pattern i is reported as bit i
+     */
+    public static KeyPatternMatcher compile(List<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns cannot be empty");
+            }
+        }
+        return new KeyPatternMatcher(patterns);
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Set the bit of every pattern contained in the text
+     */
+    public void collect(CharSequence text, BitSet matches) {
+        if (patternCount == 0) {
+            return;
+        }
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            final int symbol = c < ASCII ? alphabet[c] : extendedAlphabet.getOrDefault(c, -1);
+            if (symbol < 0) {
+                // No pattern contains this character
+                state = 0;
+                continue;
+            }
+            state = transitions[state * alphabetSize + symbol];
+            for (int patternIndex : outputs[state]) {
+                matches.set(patternIndex);
+            }
+        }
+    }
+
+    private int symbolOf(char c) {
+        return c < ASCII ? alphabet[c] : extendedAlphabet.get(c);
+    }
+
+    private int[] newNode() {
+        final int[] node = new int[alphabetSize];
+        Arrays.fill(node, -1);
+        return node;
+    }
+}
@@ -0,0 +1,486 @@
+package dev.fluffyworld.nxbrokenitems.config;
+
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.ItemSummary;
+import dev.fluffyworld.nxbrokenitems.listeners.components.OverflowPolicy;
+import dev.fluffyworld.nxbrokenitems.utils.MessageUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable view of config.yml compiled once on enable and on every reload.
+ * Break handling, cost calculation and the menus read from here instead of the config,
+ * so they never parse paths, look up materials or colorize text per item or click.
+ * Custom data patterns are compiled into one {@link KeyPatternMatcher} used by {@link #analyze(ItemStack)},
+ * prices into the {@link CostRules} table.
+ */
+public final class PluginSettings {
+
+    private static final String ADVANCED_ENCHANTMENT_KEY = "advancedenchantments:ae_enchantment";
+    private static final Enchantment UNBREAKING = Enchantment.getByKey(NamespacedKey.minecraft("unbreaking"));
+    private static final String DEFAULT_LORE_FORMAT = "&eRestoration Cost: &6{cost}";
+    private static final Pattern COLOR_CODES = Pattern.compile("§[0-9a-fk-or]");
+
+    /**
+     * A menu button with its slot already resolved against the menu size
+     */
+    public record MenuButton(int slot, Material material, int customModelData, String displayName) {
+    }
+
+    private final Set<Material> whitelist;
+    private final CostRules costRules;
+    private final KeyPatternMatcher keyMatcher;
+    private final int blacklistStart;
+    private final int multiplierStart;
+    private final String[] multiplierKeys;
+    private final double[] multiplierValues;
+    private final boolean repairOnRecovery;
+    private final long breakDedupeMillis;
+    private final long advancedEnchantmentDedupeMillis;
+    private final int breakQueueCapacity;
+    private final int breaksPerTick;
+    private final int breaksPerPlayerPerTick;
+    private final OverflowPolicy breakOverflow;
+
+    private final String restoreTitle;
+    private final int restoreSize;
+    private final int itemsPerPage;
+    private final MenuButton nextPageButton;
+    private final MenuButton previousPageButton;
+    private final MenuButton sortButton;
+    private final MenuButton filterButton;
+    private final MenuButton searchButton;
+    private final Map<String, String> queryLabels;
+    private final MenuButton selectButton;
+    private final MenuButton restoreSelectedButton;
+    private final MenuButton restoreAllButton;
+    private final String selectedLore;
+    private final String costLoreFormat;
+    private final String costLoreMarker;
+    private final String confirmTitle;
+    private final int confirmSize;
+    private final MenuButton restoreButton;
+    private final MenuButton deleteButton;
+    private final MenuButton backButton;
+
+    private final String inventoryFullPlaceholder;
+    private final String inventoryFullValue;
+    private final Map<String, String> messages;
+
+    private PluginSettings(FileConfiguration config, Logger logger) {
+        this.whitelist = compileWhitelist(config.getStringList("whitelist"), logger);
+        this.costRules = new CostRules(compileMaterialCosts(config.getConfigurationSection("material-costs"), logger),
+            config.getInt("default-cost-without-unbreaking", 500),
+            config.getInt("advanced-enchantment-cost", 30000),
+            config.getIntegerList("costs").stream().mapToInt(Integer::intValue).toArray());
+
+        // Pattern 0 marks AdvancedEnchantments items, then the blacklist, then multipliers in config order
+        final List<String> patterns = new ArrayList<>();
+        patterns.add(ADVANCED_ENCHANTMENT_KEY);
+        this.blacklistStart = patterns.size();
+        config.getStringList("blacklist.custom-data").stream().filter(key -> !key.isEmpty()).forEach(patterns::add);
+        this.multiplierStart = patterns.size();
+        final ConfigurationSection multipliers = config.getConfigurationSection("cost-multipliers");
+        final List<String> multiplierKeys = multipliers != null
+            ? multipliers.getKeys(false).stream().filter(key -> !key.isEmpty()).toList()
+            : List.of();
+        patterns.addAll(multiplierKeys);
+        this.multiplierKeys = multiplierKeys.toArray(String[]::new);
+        this.multiplierValues = multiplierKeys.stream().mapToDouble(key -> multipliers.getDouble(key, 1.0)).toArray();
+        this.keyMatcher = KeyPatternMatcher.compile(patterns);
+        this.repairOnRecovery = config.getBoolean("repair-on-recovery");
+        this.breakDedupeMillis = Math.max(0L, config.getLong("dedupe.break-window-ms", 5000L));
+        this.advancedEnchantmentDedupeMillis = Math.max(0L,
+            config.getLong("dedupe.advanced-enchantment-window-ms", 30000L));
+        this.breakQueueCapacity = Math.max(1, config.getInt("break-queue.capacity", 5000));
+        this.breaksPerTick = Math.max(1, config.getInt("break-queue.max-per-tick", 100));
+        this.breaksPerPlayerPerTick = Math.max(1, config.getInt("break-queue.max-per-player-per-tick", 10));
+        this.breakOverflow = OverflowPolicy.fromConfig(config.getString("break-queue.overflow", "defer"));
+
+        this.restoreTitle = MessageUtils.colorize(config.getString("menu.restore.title", "&cBroken Items List"));
+        this.restoreSize = config.getInt("menu.restore.size", 54);
+        this.itemsPerPage = restoreSize - config.getInt("menu.restore.items-per-page-offset", 9);
+        this.nextPageButton = compileButton(config, logger, "menu.restore.navigation-buttons.next-page",
+            -1, Material.ARROW, "&aNext Page", restoreSize);
+        this.previousPageButton = compileButton(config, logger, "menu.restore.navigation-buttons.previous-page",
+            -9, Material.ARROW, "&aPrevious Page", restoreSize);
+        this.sortButton = compileButton(config, logger, "menu.restore.query-buttons.sort",
+            -8, Material.COMPASS, "&eSort: &f{value}", restoreSize);
+        this.filterButton = compileButton(config, logger, "menu.restore.query-buttons.filter",
+            -7, Material.CHEST, "&eShow: &f{value}", restoreSize);
+        this.searchButton = compileButton(config, logger, "menu.restore.query-buttons.search",
+            -3, Material.NAME_TAG, "&eSearch: &f{value}", restoreSize);
+        this.queryLabels = compileQueryLabels(config.getConfigurationSection("menu.restore.query-labels"));
+        this.selectButton = compileButton(config, logger, "menu.restore.bulk-buttons.select",
+            -6, Material.HOPPER, "&bSelect Items", restoreSize);
+        this.restoreSelectedButton = compileButton(config, logger, "menu.restore.bulk-buttons.restore-selected",
+            -5, Material.LIME_DYE, "&aRestore Selected", restoreSize);
+        this.restoreAllButton = compileButton(config, logger, "menu.restore.bulk-buttons.restore-all",
+            -4, Material.EMERALD, "&aRestore All Affordable", restoreSize);
+        this.selectedLore = MessageUtils.colorize(config.getString("menu.restore.lore.selected", "&aSelected"));
+        this.costLoreFormat = MessageUtils.colorize(config.getString("menu.restore.lore.format", DEFAULT_LORE_FORMAT));
+        this.costLoreMarker = stripColors(costLoreFormat).replace("{cost}", "").trim();
+
+        this.confirmTitle = MessageUtils.colorize(config.getString("menu.confirm.title", "&cConfirm Action"));
+        this.confirmSize = config.getInt("menu.confirm.size", 27);
+        this.restoreButton = compileButton(config, logger, "menu.confirm.buttons.restore",
+            11, Material.LIME_WOOL, "&aRestore", confirmSize);
+        this.deleteButton = compileButton(config, logger, "menu.confirm.buttons.delete",
+            15, Material.LIME_WOOL, "&cDelete", confirmSize);
+        this.backButton = compileButton(config, logger, "menu.confirm.buttons.back",
+            13, Material.LIME_WOOL, "&e&lBack to List", confirmSize);
+
+        this.inventoryFullPlaceholder = config.getString("placeholderapi.inventory-full-placeholder", "%fluffy_isfull%");
+        this.inventoryFullValue = config.getString("placeholderapi.inventory-full-value", "true");
+        this.messages = compileMessages(config);
+    }
+
+    /**
+     * Compile a config snapshot, logging entries that cannot be used
+     */
+    public static PluginSettings compile(FileConfiguration config, Logger logger) {
+        Objects.requireNonNull(config, "Config cannot be null");
+        return new PluginSettings(config, logger);
+    }
+
+    public boolean isWhitelisted(Material material) {
+        return whitelist.contains(material);
+    }
+
+    public CostRules getCostRules() {
+        return costRules;
+    }
+
+    /**
+     * Read an item's meta once and match every custom data key against the blacklist,
+     * the cost multipliers and the AdvancedEnchantments marker in a single scan per key
+     */
+    public ItemProfile analyze(ItemStack item) {
+        final ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return ItemProfile.EMPTY;
+        }
+
+        final BitSet matches = new BitSet(keyMatcher.getPatternCount());
+        for (NamespacedKey key : meta.getPersistentDataContainer().getKeys()) {
+            keyMatcher.collect(key.toString(), matches);
+        }
+
+        final int blacklistMatch = matches.nextSetBit(blacklistStart);
+        final int multiplierMatch = matches.nextSetBit(multiplierStart);
+        final int unbreakingLevel = UNBREAKING != null && meta.hasEnchant(UNBREAKING)
+            ? meta.getEnchantLevel(UNBREAKING)
+            : 0;
+        return new ItemProfile(
+            matches.get(0),
+            blacklistMatch >= 0 && blacklistMatch < multiplierStart,
+            multiplierMatch >= 0 ? multiplierValues[multiplierMatch - multiplierStart] : 1.0,
+            multiplierMatch >= 0 ? multiplierKeys[multiplierMatch - multiplierStart] : null,
+            unbreakingLevel);
+    }
+
+    /**
+     * Rebuild the pricing part of a stored item's profile from its summary, without deserialising the item.
+     * The multiplier is looked up by the key matched at capture, a key no longer configured counts as none.
+     * Blacklisting is stored with the entry and is always false here.
+     */
+    public ItemProfile analyze(ItemSummary summary) {
+        final String key = summary.costMultiplierKey();
+        for (int i = 0; key != null && i < multiplierKeys.length; i++) {
+            if (multiplierKeys[i].equals(key)) {
+                return new ItemProfile(summary.advancedEnchantment(), false, multiplierValues[i], key,
+                    summary.unbreakingLevel());
+            }
+        }
+        return new ItemProfile(summary.advancedEnchantment(), false, 1.0, null, summary.unbreakingLevel());
+    }
+
+    public boolean isRepairOnRecovery() {
+        return repairOnRecovery;
+    }
+
+    /**
+     * Get how long a second break of the same item is ignored while the first copy is still stored
+     */
+    public long getBreakDedupeMillis() {
+        return breakDedupeMillis;
+    }
+
+    /**
+     * Get how long an AdvancedEnchantments item that was just stored keeps the stored copy over a new one
+     */
+    public long getAdvancedEnchantmentDedupeMillis() {
+        return advancedEnchantmentDedupeMillis;
+    }
+
+    /**
+     * Get the most breaks that may wait to be saved
+     */
+    public int getBreakQueueCapacity() {
+        return breakQueueCapacity;
+    }
+
+    public int getBreaksPerTick() {
+        return breaksPerTick;
+    }
+
+    public int getBreaksPerPlayerPerTick() {
+        return breaksPerPlayerPerTick;
+    }
+
+    public OverflowPolicy getBreakOverflow() {
+        return breakOverflow;
+    }
+
+    public String getRestoreTitle() {
+        return restoreTitle;
+    }
+
+    public int getRestoreSize() {
+        return restoreSize;
+    }
+
+    public int getItemsPerPage() {
+        return itemsPerPage;
+    }
+
+    public MenuButton getNextPageButton() {
+        return nextPageButton;
+    }
+
+    public MenuButton getPreviousPageButton() {
+        return previousPageButton;
+    }
+
+    public MenuButton getSortButton() {
+        return sortButton;
+    }
+
+    public MenuButton getFilterButton() {
+        return filterButton;
+    }
+
+    public MenuButton getSearchButton() {
+        return searchButton;
+    }
+
+    /**
+     * Get the colorized label of a sort or filter option, or of an empty search if the option is null
+     */
+    public String getQueryLabel(Enum<?> option) {
+        final String key = option != null ? option.name().toLowerCase(Locale.ROOT).replace('_', '-') : "no-search";
+        final String label = queryLabels.get(key);
+        if (label != null) {
+            return label;
+        }
+        final String words = key.replace('-', ' ');
+        return Character.toUpperCase(words.charAt(0)) + words.substring(1);
+    }
+
+    public MenuButton getSelectButton() {
+        return selectButton;
+    }
+
+    public MenuButton getRestoreSelectedButton() {
+        return restoreSelectedButton;
+    }
+
+    public MenuButton getRestoreAllButton() {
+        return restoreAllButton;
+    }
+
+    /**
+     * Get the colorized lore line marking an entry picked in select mode
+     */
+    public String getSelectedLore() {
+        return selectedLore;
+    }
+
+    /**
+     * Get the colorized cost lore line for a cost
+     */
+    public String formatCostLore(int cost) {
+        return costLoreFormat.replace("{cost}", String.valueOf(cost));
+    }
+
+    /**
+     * Check if a lore line was added by {@link #formatCostLore(int)}
+     */
+    public boolean isCostLore(String line) {
+        return stripColors(line).contains(costLoreMarker);
+    }
+
+    public String getConfirmTitle() {
+        return confirmTitle;
+    }
+
+    public int getConfirmSize() {
+        return confirmSize;
+    }
+
+    public MenuButton getRestoreButton() {
+        return restoreButton;
+    }
+
+    public MenuButton getDeleteButton() {
+        return deleteButton;
+    }
+
+    public MenuButton getBackButton() {
+        return backButton;
+    }
+
+    public String getInventoryFullPlaceholder() {
+        return inventoryFullPlaceholder;
+    }
+
+    public String getInventoryFullValue() {
+        return inventoryFullValue;
+    }
+
+    /**
+     * Get a colorized message by its key under messages, or an empty string if it is not set
+     */
+    public String getMessage(String key) {
+        return messages.getOrDefault(key, "");
+    }
+
+    private static String stripColors(String text) {
+        return COLOR_CODES.matcher(text).replaceAll("");
+    }
+
+    /**
+     * Accepts material names, wildcards like *_SWORD and item tags like #minecraft:swords
+     */
+    private static Set<Material> compileWhitelist(List<String> patterns, Logger logger) {
+        final Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (String pattern : patterns) {
+            materials.addAll(matchMaterials(pattern, "whitelist", logger));
+        }
+        return Collections.unmodifiableSet(materials);
+    }
+
+    /**
+     * Compile material-costs, a material matched by several entries costs what the first of them says
+     */
+    private static Map<Material, CostRules.MaterialCost> compileMaterialCosts(ConfigurationSection section,
+                                                                             Logger logger) {
+        final Map<Material, CostRules.MaterialCost> costs = new EnumMap<>(Material.class);
+        if (section == null) {
+            return costs;
+        }
+        for (String pattern : section.getKeys(false)) {
+            if (!section.isInt(pattern)) {
+                logger.warning("Invalid cost in material-costs for " + pattern + ": " + section.get(pattern));
+                continue;
+            }
+            final CostRules.MaterialCost cost = new CostRules.MaterialCost(pattern, section.getInt(pattern));
+            for (Material material : matchMaterials(pattern, "material-costs", logger)) {
+                costs.putIfAbsent(material, cost);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Match a material name, a wildcard like "*_SWORD" or an item tag like "#minecraft:swords"
+     */
+    private static Set<Material> matchMaterials(String rawPattern, String source, Logger logger) {
+        final String pattern = rawPattern.trim();
+        final Set<Material> materials = EnumSet.noneOf(Material.class);
+        if (pattern.startsWith("#")) {
+            final NamespacedKey tagKey = NamespacedKey.fromString(pattern.substring(1).toLowerCase(Locale.ROOT));
+            final Tag<Material> tag = tagKey != null ? Bukkit.getTag(Tag.REGISTRY_ITEMS, tagKey, Material.class) : null;
+            if (tag == null) {
+                logger.warning("Unknown item tag in " + source + ": " + pattern);
+            } else {
+                materials.addAll(tag.getValues());
+            }
+        } else if (pattern.contains("*")) {
+            final Pattern regex = Pattern.compile(Arrays.stream(pattern.toUpperCase(Locale.ROOT).split("\\*", -1))
+                .map(Pattern::quote)
+                .reduce((left, right) -> left + ".*" + right)
+                .orElse(""));
+            for (Material material : Material.values()) {
+                if (!material.name().startsWith("LEGACY_") && regex.matcher(material.name()).matches()) {
+                    materials.add(material);
+                }
+            }
+            if (materials.isEmpty()) {
+                logger.warning("Pattern in " + source + " matches no materials: " + pattern);
+            }
+        } else {
+            final Material material = Material.matchMaterial(pattern);
+            if (material == null) {
+                logger.warning("Unknown material in " + source + ": " + pattern);
+            } else {
+                materials.add(material);
+            }
+        }
+        return materials;
+    }
+
+    private static MenuButton compileButton(FileConfiguration config, Logger logger, String basePath,
+                                            int defaultSlot, Material fallback, String defaultName, int menuSize) {
+        final String materialName = config.getString(basePath + ".material", fallback.name());
+        Material material = Material.getMaterial(materialName.toUpperCase(Locale.ROOT));
+        if (material == null) {
+            logger.warning("Invalid material for button " + basePath + ": " + materialName);
+            material = fallback;
+        }
+
+        final int slot = config.getInt(basePath + ".slot", defaultSlot);
+        return new MenuButton(slot < 0 ? menuSize + slot : slot, material,
+            config.getInt(basePath + ".custom-model-data", 0),
+            MessageUtils.colorize(config.getString(basePath + ".display-name", defaultName)));
+    }
+
+    /**
+     * Read the colorized sort and filter labels under menu.restore.query-labels
+     */
+    private static Map<String, String> compileQueryLabels(ConfigurationSection section) {
+        final Map<String, String> labels = new HashMap<>();
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                labels.put(key, MessageUtils.colorize(section.getString(key, key)));
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Read messages from the file and from the bundled defaults, so keys added in newer versions still resolve
+     */
+    private static Map<String, String> compileMessages(FileConfiguration config) {
+        final Set<String> keys = new HashSet<>();
+        final ConfigurationSection section = config.getConfigurationSection("messages");
+        if (section != null) {
+            keys.addAll(section.getKeys(false));
+        }
+        final Configuration defaults = config.getDefaults();
+        if (defaults != null && defaults.getConfigurationSection("messages") != null) {
+            keys.addAll(defaults.getConfigurationSection("messages").getKeys(false));
+        }
+
+        final Map<String, String> compiled = new HashMap<>();
+        for (String key : keys) {
+            final String message = config.getString("messages." + key);
+            if (message != null && !message.isEmpty()) {
+                compiled.put(key, MessageUtils.colorize(message));
+            }
+        }
+        return Map.copyOf(compiled);
+    }
+}
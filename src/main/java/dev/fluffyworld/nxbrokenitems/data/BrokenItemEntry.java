@@ -0,0 +1,110 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Locale;
+import java.util.Objects;
+
+public final class BrokenItemEntry {
+
+    private final String id;
+    private final LazyItem item;
+    private final ItemSummary summary;
+    private final long timestamp;
+    private final boolean blacklisted;
+    private volatile ItemFingerprint fingerprint;
+    private volatile String searchText;
+
+    /**
+     * @param profile     The item's profile, the summary is taken from it
+     * @param fingerprint The item's {@link ItemFingerprint#of(ItemStack)}, or null to compute it when first needed
+     */
+    public BrokenItemEntry(String id, ItemStack item, ItemProfile profile, long timestamp, boolean blacklisted,
+                           ItemFingerprint fingerprint) {
+        this(id, LazyItem.of(Objects.requireNonNull(item, "Item cannot be null").clone()),
+            ItemSummary.of(item, profile), timestamp, blacklisted, fingerprint);
+    }
+
+    /**
+     * Create an entry whose item is deserialised when first needed
+     *
+     * @param summary The item's stored summary, known without deserialising it
+     */
+    public BrokenItemEntry(String id, LazyItem item, ItemSummary summary, long timestamp, boolean blacklisted,
+                           ItemFingerprint fingerprint) {
+        this.id = Objects.requireNonNull(id, "Id cannot be null");
+        this.item = Objects.requireNonNull(item, "Item cannot be null");
+        this.summary = Objects.requireNonNull(summary, "Summary cannot be null");
+        this.timestamp = timestamp;
+        this.blacklisted = blacklisted;
+        this.fingerprint = fingerprint;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get a copy of the stored item, safe to decorate or hand to a player
+     */
+    public ItemStack getItem() {
+        return item.get().clone();
+    }
+
+    /**
+     * @return The bytes the item was stored as, or null if the entry was created in memory
+     */
+    public byte[] getSerializedItem() {
+        return item.getSerialized();
+    }
+
+    /**
+     * Get the fingerprint of the stored item, ignoring durability
+     */
+    public ItemFingerprint getFingerprint() {
+        ItemFingerprint current = fingerprint;
+        if (current == null) {
+            current = ItemFingerprint.of(item.get());
+            fingerprint = current;
+        }
+        return current;
+    }
+
+    /**
+     * Get the item's display name and material name in lower case for menu searches, from the stored summary
+     */
+    public String getSearchText() {
+        String current = searchText;
+        if (current == null) {
+            final String typeName = summary.type().name().replace('_', ' ');
+            current = (summary.displayName().isEmpty() ? typeName : summary.displayName() + ' ' + typeName)
+                .toLowerCase(Locale.ROOT);
+            searchText = current;
+        }
+        return current;
+    }
+
+    public ItemSummary getSummary() {
+        return summary;
+    }
+
+    public Material getType() {
+        return summary.type();
+    }
+
+    /**
+     * Check whether the item carries an AdvancedEnchantments enchantment, from the stored summary
+     */
+    public boolean isAdvancedEnchantment() {
+        return summary.advancedEnchantment();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isBlacklisted() {
+        return blacklisted;
+    }
+}
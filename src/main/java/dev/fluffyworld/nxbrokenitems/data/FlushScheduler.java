@@ -0,0 +1,74 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import dev.fluffyworld.nxbrokenitems.scheduler.ScheduledTask;
+import dev.fluffyworld.nxbrokenitems.scheduler.TaskScheduler;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Group commit for player data.
+ * The first change of a player opens a flush window, every further change inside
+ * the window is committed together with it when the window closes.
+ */
+public final class FlushScheduler {
+
+    private record Pending(UUID playerUUID, long dueTick) {
+    }
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> scheduled = ConcurrentHashMap.newKeySet();
+    private final long windowTicks;
+    private final Consumer<UUID> flusher;
+    private volatile long currentTick;
+    private ScheduledTask task;
+
+    public FlushScheduler(long windowTicks, Consumer<UUID> flusher) {
+        this.windowTicks = Math.max(1L, windowTicks);
+        this.flusher = flusher;
+    }
+
+    public void start(TaskScheduler scheduler) {
+        task = scheduler.runTimer(this::tick, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        scheduled.clear();
+    }
+
+    /**
+     * Mark a player's data as changed; does nothing if a window is already open for the player.
+     * Safe to call from any thread.
+     */
+    public void schedule(UUID playerUUID) {
+        if (scheduled.add(playerUUID)) {
+            queue.add(new Pending(playerUUID, currentTick + windowTicks));
+        }
+    }
+
+    /**
+     * Get the number of players waiting for their window to close
+     */
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    private void tick() {
+        final long tick = ++currentTick;
+        Pending pending;
+        while ((pending = queue.peek()) != null && pending.dueTick() <= tick) {
+            queue.poll();
+            scheduled.remove(pending.playerUUID());
+            flusher.accept(pending.playerUUID());
+        }
+    }
+}
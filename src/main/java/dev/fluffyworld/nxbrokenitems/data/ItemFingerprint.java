@@ -0,0 +1,138 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+
+/**
+ * Stable 128-bit hash of an item's content.
+ * It is computed from the item's serialized form with map keys in sorted order, so equal items
+ * always produce the same value across restarts. The stack amount and data version are never part of it.
+ */
+public record ItemFingerprint(long high, long low) {
+
+    private static final String LORE_KEY = "lore";
+    private static final String DAMAGE_KEY = "Damage";
+    private static final Set<String> IGNORED_ITEM_KEYS = Set.of("v", "amount");
+
+    /**
+     * Fingerprint stored with every entry: everything but durability
+     */
+    public static ItemFingerprint of(ItemStack item) {
+        return of(item, false, true);
+    }
+
+    public static ItemFingerprint of(ItemStack item, boolean ignoreLore, boolean ignoreDurability) {
+        Objects.requireNonNull(item, "Item cannot be null");
+        final Hasher hasher = new Hasher();
+        final Map<String, Object> serialized = new TreeMap<>(item.serialize());
+        IGNORED_ITEM_KEYS.forEach(serialized::remove);
+
+        for (Map.Entry<String, Object> entry : serialized.entrySet()) {
+            hasher.putString(entry.getKey());
+            if (entry.getValue() instanceof ConfigurationSerializable meta && "meta".equals(entry.getKey())) {
+                final Map<String, Object> metaValues = new TreeMap<>(meta.serialize());
+                if (ignoreLore) {
+                    metaValues.remove(LORE_KEY);
+                }
+                if (ignoreDurability) {
+                    metaValues.remove(DAMAGE_KEY);
+                }
+                hasher.putValue(metaValues);
+            } else {
+                hasher.putValue(entry.getValue());
+            }
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * @return The fingerprint, or null if the text is not a 32 digit hex fingerprint
+     */
+    public static ItemFingerprint fromHex(String hex) {
+        if (hex == null || hex.length() != 32) {
+            return null;
+        }
+        try {
+            return new ItemFingerprint(Long.parseUnsignedLong(hex.substring(0, 16), 16),
+                Long.parseUnsignedLong(hex.substring(16), 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * Two independently seeded 64-bit lanes over a tagged stream of the serialized values
+     */
+    private static final class Hasher {
+        private long first = 0x9E3779B97F4A7C15L;
+        private long second = 0xC2B2AE3D27D4EB4FL;
+
+        private void putLong(long value) {
+            first = (first ^ value) * 0x100000001B3L;
+            first = Long.rotateLeft(first, 31);
+            second = (second ^ Long.rotateLeft(value, 17)) * 0xFF51AFD7ED558CCDL;
+            second = Long.rotateLeft(second, 29);
+        }
+
+        private void putString(String value) {
+            putLong('S');
+            putLong(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                putLong(value.charAt(i));
+            }
+        }
+
+        private void putValue(Object value) {
+            if (value == null) {
+                putLong('0');
+            } else if (value instanceof String text) {
+                putString(text);
+            } else if (value instanceof Boolean bool) {
+                putLong(bool ? 'T' : 'F');
+            } else if (value instanceof Double || value instanceof Float) {
+                putLong('D');
+                putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Number number) {
+                putLong('N');
+                putLong(number.longValue());
+            } else if (value instanceof Map<?, ?> map) {
+                putLong('M');
+                putLong(map.size());
+                final Map<String, Object> sorted = new TreeMap<>();
+                map.forEach((key, entryValue) -> sorted.put(String.valueOf(key), entryValue));
+                sorted.forEach((key, entryValue) -> {
+                    putString(key);
+                    putValue(entryValue);
+                });
+            } else if (value instanceof Collection<?> collection) {
+                putLong('L');
+                putLong(collection.size());
+                collection.forEach(this::putValue);
+            } else if (value instanceof ConfigurationSerializable serializable) {
+                putString(serializable.getClass().getSimpleName());
+                putValue(serializable.serialize());
+            } else {
+                putString(value.toString());
+            }
+        }
+
+        private ItemFingerprint finish() {
+            return new ItemFingerprint(mix(first ^ second), mix(second + first * 31));
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xFF51AFD7ED558CCDL;
+            value ^= value >>> 33;
+            value *= 0xC4CEB9FE1A85EC53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+/**
+ * What the plugin needs to know about an item's custom data and enchantments,
+ * worked out in one pass by {@link dev.fluffyworld.nxbrokenitems.config.PluginSettings#analyze}.
+ *
+ * @param advancedEnchantment  The item carries an AdvancedEnchantments enchantment
+ * @param blacklisted          A custom data key matches the blacklist
+ * @param costMultiplier       Multiplier of the first matching cost-multipliers entry, 1 if none
+ * @param costMultiplierKey    Key of the first matching cost-multipliers entry, null if none
+ * @param unbreakingLevel      Level of unbreaking, 0 if the item does not have it
+ */
+public record ItemProfile(boolean advancedEnchantment, boolean blacklisted, double costMultiplier,
+                          String costMultiplierKey, int unbreakingLevel) {
+
+    public static final ItemProfile EMPTY = new ItemProfile(false, false, 1.0, null, 0);
+}
@@ -0,0 +1,38 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Objects;
+
+/**
+ * What the restore menu filters, searches and prices by, stored next to the serialized item
+ * so it can be read without deserialising the item.
+ *
+ * @param type                 The item's material
+ * @param advancedEnchantment  The item carries an AdvancedEnchantments enchantment
+ * @param displayName          The display name without color codes, empty if the item has none
+ * @param unbreakingLevel      Level of unbreaking, 0 if the item does not have it
+ * @param costMultiplierKey    Key of the cost-multipliers entry the item matched when captured, null if none
+ */
+public record ItemSummary(Material type, boolean advancedEnchantment, String displayName, int unbreakingLevel,
+                          String costMultiplierKey) {
+
+    public ItemSummary {
+        Objects.requireNonNull(type, "Type cannot be null");
+        displayName = displayName != null ? displayName : "";
+        costMultiplierKey = costMultiplierKey != null && !costMultiplierKey.isEmpty() ? costMultiplierKey : null;
+    }
+
+    /**
+     * Summarize an item, taking what its custom data says from the profile it was already analysed into
+     */
+    public static ItemSummary of(ItemStack item, ItemProfile profile) {
+        final ItemMeta meta = item.getItemMeta();
+        return new ItemSummary(item.getType(), profile.advancedEnchantment(),
+            meta != null && meta.hasDisplayName() ? ChatColor.stripColor(meta.getDisplayName()) : "",
+            profile.unbreakingLevel(), profile.costMultiplierKey());
+    }
+}
@@ -0,0 +1,83 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * An entry's item, kept in its stored form until something needs the ItemStack.
+ * Items read from binary storage are only deserialised when shown, restored or analysed,
+ * and are written back from the stored bytes when they were never touched.
+ */
+public final class LazyItem {
+
+    /**
+     * Turns the stored bytes back into an item
+     */
+    @FunctionalInterface
+    public interface Decoder {
+        ItemStack decode(byte[] serialized) throws IOException;
+    }
+
+    private final byte[] serialized;
+    private final Decoder decoder;
+    private volatile ItemStack item;
+    private volatile IllegalStateException failure;
+
+    private LazyItem(ItemStack item, byte[] serialized, Decoder decoder) {
+        this.item = item;
+        this.serialized = serialized;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Wrap an item that is already deserialised, the item must not be changed afterwards
+     */
+    public static LazyItem of(ItemStack item) {
+        return new LazyItem(Objects.requireNonNull(item, "Item cannot be null"), null, null);
+    }
+
+    public static LazyItem serialized(byte[] serialized, Decoder decoder) {
+        return new LazyItem(null, Objects.requireNonNull(serialized, "Serialized item cannot be null"),
+            Objects.requireNonNull(decoder, "Decoder cannot be null"));
+    }
+
+    /**
+     * Get the item, deserialising it on first use. The returned item must not be changed.
+     *
+     * @throws IllegalStateException if the stored bytes cannot be read, the bytes are only decoded once
+     */
+    public ItemStack get() {
+        ItemStack current = item;
+        if (current == null) {
+            synchronized (this) {
+                current = item;
+                if (current == null) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    try {
+                        current = decoder.decode(serialized);
+                    } catch (IOException | RuntimeException e) {
+                        failure = new IllegalStateException("Failed to read stored item", e);
+                        throw failure;
+                    }
+                    item = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return The bytes the item was read from, or null if it was created in memory
+     */
+    public byte[] getSerialized() {
+        return serialized;
+    }
+
+    public boolean isLoaded() {
+        return item != null;
+    }
+}
@@ -0,0 +1,85 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs disk writes off the server thread on virtual threads.
+ * Tasks submitted with the same key run one after another in submission order,
+ * tasks with different keys run in parallel.
+ */
+public final class PersistenceExecutor {
+
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private volatile boolean shutdown;
+
+    public PersistenceExecutor(Logger logger) {
+        this.logger = logger;
+        this.executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("NxBrokenItems-io-", 0).factory());
+    }
+
+    /**
+     * Queue a task behind every earlier task with the same key.
+     * After shutdown the task runs directly on the calling thread.
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        if (shutdown) {
+            runSafely(key, task);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> next = tails.compute(key, (k, tail) -> {
+            final CompletableFuture<Void> previous = tail != null ? tail : CompletableFuture.completedFuture(null);
+            return previous.thenRunAsync(() -> runSafely(k, task), executor);
+        });
+        next.whenComplete((result, error) -> tails.remove(key, next));
+        return next;
+    }
+
+    public boolean hasPending(Object key) {
+        return tails.containsKey(key);
+    }
+
+    /**
+     * Get the number of keys that still have queued or running writes
+     */
+    public int getPendingKeys() {
+        return tails.size();
+    }
+
+    /**
+     * Wait for queued writes to finish, up to the given timeout, then stop the executor
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        shutdown = true;
+        final CompletableFuture<?>[] pending = tails.values().toArray(new CompletableFuture<?>[0]);
+        try {
+            CompletableFuture.allOf(pending).get(timeout, unit);
+        } catch (TimeoutException e) {
+            logger.warning("Timed out waiting for " + tails.size() + " pending data writes");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Failed while waiting for pending data writes", e);
+        }
+        executor.shutdownNow();
+    }
+
+    private void runSafely(Object key, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Persistence task failed for " + key, e);
+        }
+    }
+}
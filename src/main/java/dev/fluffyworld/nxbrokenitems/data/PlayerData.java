@@ -0,0 +1,252 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import dev.fluffyworld.nxbrokenitems.storage.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Parsed broken-item state of a single player.
+ * Mutated on the server thread and snapshotted by the background flush.
+ * Entries are indexed by fingerprint, so duplicate checks and menu lookups never scan or clone items.
+ */
+public final class PlayerData {
+
+    private final UUID playerUUID;
+    private final Map<String, BrokenItemEntry> entries = new LinkedHashMap<>();
+    private final Map<String, BrokenItemEntry> pendingSaved = new LinkedHashMap<>();
+    private final Set<String> pendingRemoved = new LinkedHashSet<>();
+    private final Map<ItemFingerprint, List<String>> fingerprintIndex = new HashMap<>();
+    private long nextId;
+    private long version;
+    private volatile long lastAccess = System.currentTimeMillis();
+    private volatile boolean loadFailed;
+    private volatile Runnable changeListener = () -> { };
+
+    public PlayerData(UUID playerUUID) {
+        this.playerUUID = playerUUID;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public synchronized List<BrokenItemEntry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized BrokenItemEntry getEntry(String id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Get a page of entries in storage order, without touching the items of entries outside it
+     */
+    public synchronized List<BrokenItemEntry> getEntries(int offset, int limit) {
+        final List<BrokenItemEntry> page = new ArrayList<>(Math.max(0, Math.min(limit, entries.size() - offset)));
+        int index = 0;
+        for (BrokenItemEntry entry : entries.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (index++ >= offset) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Get a number that changes whenever an entry is added or removed, to tell when a view of the entries is stale
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the entries holding an item with this fingerprint, oldest first
+     */
+    public synchronized List<BrokenItemEntry> findByFingerprint(ItemFingerprint fingerprint) {
+        final List<String> ids = fingerprintIndex.get(fingerprint);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        final List<BrokenItemEntry> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            found.add(entries.get(id));
+        }
+        return found;
+    }
+
+    /**
+     * @return The oldest entry holding an item with this fingerprint, or null
+     */
+    public synchronized BrokenItemEntry findFirst(ItemFingerprint fingerprint) {
+        final List<String> ids = fingerprintIndex.get(fingerprint);
+        return ids != null ? entries.get(ids.get(0)) : null;
+    }
+
+    public synchronized void putEntry(BrokenItemEntry entry) {
+        index(entry);
+        pendingRemoved.remove(entry.getId());
+        pendingSaved.put(entry.getId(), entry);
+        changeListener.run();
+    }
+
+    public synchronized BrokenItemEntry removeEntry(String id) {
+        final BrokenItemEntry removed = entries.remove(id);
+        if (removed != null) {
+            unindex(removed);
+            pendingSaved.remove(id);
+            pendingRemoved.add(id);
+            changeListener.run();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove several entries as one change, so they are flushed together
+     *
+     * @return The entries that were removed, entries already gone are left out
+     */
+    public synchronized List<BrokenItemEntry> removeEntries(Collection<String> ids) {
+        final List<BrokenItemEntry> removed = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            final BrokenItemEntry entry = entries.remove(id);
+            if (entry != null) {
+                unindex(entry);
+                pendingSaved.remove(id);
+                pendingRemoved.add(id);
+                removed.add(entry);
+            }
+        }
+        if (!removed.isEmpty()) {
+            changeListener.run();
+        }
+        return removed;
+    }
+
+    /**
+     * Get a new entry id, higher than every id this player has used since being loaded
+     */
+    public synchronized String allocateId() {
+        return String.valueOf(nextId++);
+    }
+
+    /**
+     * Load an entry read from storage without marking it as changed
+     */
+    synchronized void loadEntry(BrokenItemEntry entry) {
+        index(entry);
+    }
+
+    /**
+     * Mark the data as not holding what is stored, so its flushes never replace the stored entries
+     */
+    synchronized void markLoadFailed() {
+        loadFailed = true;
+        // The stored ids are unknown, start far above any counter so new entries never replace stored ones
+        nextId = Math.max(nextId, System.currentTimeMillis());
+    }
+
+    synchronized boolean isDirty() {
+        return !pendingSaved.isEmpty() || !pendingRemoved.isEmpty();
+    }
+
+    /**
+     * Take the pending changes together with a copy of the current entries, if they were loaded
+     */
+    synchronized ChangeSet takeChanges() {
+        final ChangeSet changes = new ChangeSet(new ArrayList<>(pendingSaved.values()),
+            new LinkedHashSet<>(pendingRemoved), loadFailed ? null : new ArrayList<>(entries.values()));
+        pendingSaved.clear();
+        pendingRemoved.clear();
+        return changes;
+    }
+
+    /**
+     * Put back changes that failed to flush, unless a newer change to the same entry was made since.
+     * Also works on a fresh instance loaded after the failed one was evicted.
+     */
+    synchronized void restoreChanges(ChangeSet changes) {
+        for (BrokenItemEntry entry : changes.getSaved()) {
+            if (!pendingSaved.containsKey(entry.getId()) && !pendingRemoved.contains(entry.getId())) {
+                index(entry);
+                pendingSaved.put(entry.getId(), entry);
+            }
+        }
+        for (String id : changes.getRemovedIds()) {
+            if (!pendingSaved.containsKey(id)) {
+                final BrokenItemEntry removed = entries.remove(id);
+                if (removed != null) {
+                    unindex(removed);
+                }
+                pendingRemoved.add(id);
+            }
+        }
+        changeListener.run();
+    }
+
+    /**
+     * Store an entry and add it to the fingerprint index, replacing any entry with the same id
+     */
+    private void index(BrokenItemEntry entry) {
+        final BrokenItemEntry previous = entries.put(entry.getId(), entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        fingerprintIndex.computeIfAbsent(entry.getFingerprint(), key -> new ArrayList<>(1)).add(entry.getId());
+        reserveId(entry.getId());
+        version++;
+    }
+
+    private void unindex(BrokenItemEntry entry) {
+        version++;
+        final List<String> ids = fingerprintIndex.get(entry.getFingerprint());
+        if (ids != null && ids.remove(entry.getId()) && ids.isEmpty()) {
+            fingerprintIndex.remove(entry.getFingerprint());
+        }
+    }
+
+    /**
+     * Keep the allocator above numeric ids that came from storage
+     */
+    private void reserveId(String id) {
+        try {
+            nextId = Math.max(nextId, Long.parseLong(id) + 1);
+        } catch (NumberFormatException ignored) {
+            // Ids from older versions are not always numeric
+        }
+    }
+
+    /**
+     * Set the callback run whenever the data gains pending changes
+     */
+    void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
@@ -0,0 +1,236 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.storage.BrokenItemRepository;
+import dev.fluffyworld.nxbrokenitems.storage.ChangeSet;
+import dev.fluffyworld.nxbrokenitems.storage.StorageException;
+import dev.fluffyworld.nxbrokenitems.scheduler.ScheduledTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Write-behind cache of parsed player data.
+ * Reads are served from memory. A change opens a flush window for the player,
+ * when it closes the changes are snapshotted on the server thread and written by the persistence executor.
+ */
+public final class PlayerDataCache {
+
+    private static final long IDLE_EXPIRE_MILLIS = 10 * 60 * 1000L;
+    private static final long SWEEP_INTERVAL_TICKS = 20L * 60L;
+    private static final String QUARANTINE_FOLDER = "quarantine";
+
+    private final NxBrokenItems plugin;
+    private final BrokenItemRepository repository;
+    private final PersistenceExecutor persistenceExecutor;
+    private final Map<UUID, PlayerData> cache = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerData> evicted = new ConcurrentHashMap<>();
+    private final FlushScheduler flushScheduler;
+    private ScheduledTask sweepTask;
+
+    public PlayerDataCache(NxBrokenItems plugin, BrokenItemRepository repository, PersistenceExecutor persistenceExecutor) {
+        this.plugin = plugin;
+        this.repository = repository;
+        this.persistenceExecutor = persistenceExecutor;
+        this.flushScheduler = new FlushScheduler(
+            plugin.getConfig().getLong("storage.flush-window-ticks", 20L), this::flush);
+    }
+
+    /**
+     * Start the flush scheduler and the idle sweep
+     */
+    public void start() {
+        flushScheduler.start(plugin.getTaskScheduler());
+        sweepTask = plugin.getTaskScheduler().runTimer(this::flushDirty,
+            SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the scheduled tasks and queue every pending change
+     */
+    public void shutdown() {
+        flushScheduler.stop();
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        flushDirty();
+        cache.clear();
+        evicted.clear();
+    }
+
+    /**
+     * Get the data of a player, loading it from disk on first access.
+     * An evicted instance whose writes are still queued is taken back instead, the disk is not current yet.
+     */
+    public PlayerData get(UUID playerUUID) {
+        return cache.compute(playerUUID, (uuid, playerData) -> {
+            PlayerData loaded = playerData != null ? playerData : evicted.remove(uuid);
+            if (loaded == null) {
+                loaded = load(uuid);
+            }
+            loaded.touch();
+            return loaded;
+        });
+    }
+
+    /**
+     * Get the data of a player only if it is already in memory
+     */
+    public PlayerData getIfPresent(UUID playerUUID) {
+        return cache.get(playerUUID);
+    }
+
+    /**
+     * Run a task for a player who is not in memory, holding off loads of the player until it is done,
+     * so the task can change the stored entries without a load reading them halfway
+     *
+     * @return false if the player is in memory and the task did not run
+     */
+    public boolean runIfAbsent(UUID playerUUID, Runnable task) {
+        final boolean[] ran = {false};
+        cache.compute(playerUUID, (uuid, playerData) -> {
+            if (playerData == null && !evicted.containsKey(uuid)) {
+                task.run();
+                ran[0] = true;
+            }
+            return playerData;
+        });
+        return ran[0];
+    }
+
+    /**
+     * Load a player's data on the persistence executor, behind any write still queued for the player,
+     * so the first access from the server thread is already served from memory
+     */
+    public void preload(UUID playerUUID) {
+        if (cache.containsKey(playerUUID)) {
+            return;
+        }
+        persistenceExecutor.submit(playerUUID, () -> {
+            if (!cache.containsKey(playerUUID)) {
+                cache.putIfAbsent(playerUUID, load(playerUUID));
+            }
+        });
+    }
+
+    /**
+     * Write pending changes of a player and drop it from the cache,
+     * so the next access after the writes have landed re-reads the storage
+     */
+    public void reload(UUID playerUUID) {
+        evict(playerUUID);
+    }
+
+    /**
+     * Queue the pending changes of a player and drop the player from the cache.
+     * The instance stays reachable to {@link #get(UUID)} until its writes have landed.
+     */
+    public void evict(UUID playerUUID) {
+        final PlayerData playerData = cache.remove(playerUUID);
+        if (playerData == null) {
+            return;
+        }
+        flush(playerData);
+        if (persistenceExecutor.hasPending(playerUUID)) {
+            evicted.put(playerUUID, playerData);
+            // Runs after every write queued so far for the player
+            persistenceExecutor.submit(playerUUID, () -> evicted.remove(playerUUID, playerData));
+        }
+    }
+
+    /**
+     * Take an entry whose stored item cannot be read out of the player's data, once.
+     * Its bytes are kept in quarantine/<uuid>-<id>.item so an admin can still recover them.
+     */
+    public void quarantine(PlayerData playerData, BrokenItemEntry entry, RuntimeException cause) {
+        final UUID playerUUID = playerData.getPlayerUUID();
+        if (playerData.removeEntry(entry.getId()) == null) {
+            return;
+        }
+        plugin.getLogger().log(Level.SEVERE, "Quarantined unreadable item " + entry.getId()
+            + " of player " + playerUUID, cause);
+
+        final byte[] serialized = entry.getSerializedItem();
+        if (serialized == null) {
+            return;
+        }
+        // Queued before the removal is flushed, so the bytes are on disk before the entry leaves storage
+        persistenceExecutor.submit(playerUUID, () -> {
+            final File quarantineFile = new File(plugin.getDataFolder(),
+                QUARANTINE_FOLDER + File.separator + playerUUID + "-" + entry.getId() + ".item");
+            try {
+                Files.createDirectories(quarantineFile.getParentFile().toPath());
+                Files.write(quarantineFile.toPath(), serialized);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to write quarantined item " + quarantineFile.getName(), e);
+            }
+        });
+    }
+
+    /**
+     * Get the number of players currently held in memory
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Queue the pending changes of a player right away instead of waiting for the flush window
+     */
+    public void flush(UUID playerUUID) {
+        final PlayerData playerData = cache.get(playerUUID);
+        if (playerData != null) {
+            flush(playerData);
+        }
+    }
+
+    /**
+     * Queue a write for every dirty entry and evict clean entries that have been idle for a while
+     */
+    public void flushDirty() {
+        final long now = System.currentTimeMillis();
+        for (PlayerData playerData : cache.values()) {
+            flush(playerData);
+            cache.computeIfPresent(playerData.getPlayerUUID(), (uuid, cached) ->
+                !cached.isDirty() && !persistenceExecutor.hasPending(uuid)
+                    && now - cached.getLastAccess() > IDLE_EXPIRE_MILLIS ? null : cached);
+        }
+    }
+
+    private PlayerData load(UUID playerUUID) {
+        final PlayerData playerData = new PlayerData(playerUUID);
+        try {
+            repository.list(playerUUID).forEach(playerData::loadEntry);
+        } catch (StorageException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load data of player: " + playerUUID
+                + ", new items are added to the stored ones without replacing them", e);
+            playerData.markLoadFailed();
+        }
+        playerData.setChangeListener(() -> flushScheduler.schedule(playerUUID));
+        return playerData;
+    }
+
+    private void flush(PlayerData playerData) {
+        if (!playerData.isDirty()) {
+            return;
+        }
+
+        final UUID playerUUID = playerData.getPlayerUUID();
+        final ChangeSet changes = playerData.takeChanges();
+        persistenceExecutor.submit(playerUUID, () -> {
+            try {
+                repository.apply(playerUUID, changes);
+            } catch (StorageException e) {
+                plugin.getLogger().log(Level.SEVERE, e.getMessage(), e);
+                final PlayerData cached = cache.putIfAbsent(playerUUID, playerData);
+                (cached != null ? cached : playerData).restoreChanges(changes);
+            }
+        });
+    }
+}
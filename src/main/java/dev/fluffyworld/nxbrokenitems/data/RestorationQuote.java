@@ -0,0 +1,10 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+/**
+ * Restoration cost of one item and the price rules that produced it.
+ *
+ * @param cost  Cost of a single item, multiply by the stack amount for the full price
+ * @param rule  The rule that set the base cost, followed by the cost multiplier that applied, if any
+ */
+public record RestorationQuote(int cost, String rule) {
+}
@@ -0,0 +1,106 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Limits on how many broken items a player keeps and for how long.
+ * A limit of 0 disables it.
+ */
+public final class RetentionPolicy {
+
+    private static final Comparator<BrokenItemEntry> NEWEST_FIRST =
+        Comparator.comparingLong(BrokenItemEntry::getTimestamp).reversed();
+
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final Map<Material, Integer> materialLimits;
+
+    public RetentionPolicy(long maxAgeMillis, int maxEntries, Map<Material, Integer> materialLimits) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+        this.materialLimits = materialLimits;
+    }
+
+    public static RetentionPolicy fromConfig(FileConfiguration config, Logger logger) {
+        final Map<Material, Integer> materialLimits = new EnumMap<>(Material.class);
+        final ConfigurationSection limitsSection = config.getConfigurationSection("retention.material-limits");
+        if (limitsSection != null) {
+            for (String key : limitsSection.getKeys(false)) {
+                final Material material = Material.matchMaterial(key);
+                if (material == null) {
+                    logger.warning("Invalid material in retention.material-limits: " + key);
+                    continue;
+                }
+                materialLimits.put(material, limitsSection.getInt(key));
+            }
+        }
+
+        return new RetentionPolicy(
+            TimeUnit.DAYS.toMillis(config.getLong("retention.max-age-days", 0L)),
+            config.getInt("retention.max-items-per-player", 0),
+            materialLimits);
+    }
+
+    public boolean isEnabled() {
+        return maxAgeMillis > 0 || maxEntries > 0 || !materialLimits.isEmpty();
+    }
+
+    /**
+     * Select the ids of entries that break a limit: expired entries first,
+     * then the oldest entries of any material or player total over its limit.
+     * Entries without a timestamp never expire but still count towards limits.
+     */
+    public Set<String> selectExpired(List<BrokenItemEntry> entries, long now) {
+        final Set<String> expired = new LinkedHashSet<>();
+        if (!isEnabled() || entries.isEmpty()) {
+            return expired;
+        }
+
+        final List<BrokenItemEntry> kept = new ArrayList<>(entries.size());
+        for (BrokenItemEntry entry : entries) {
+            if (maxAgeMillis > 0 && entry.getTimestamp() > 0 && now - entry.getTimestamp() > maxAgeMillis) {
+                expired.add(entry.getId());
+            } else {
+                kept.add(entry);
+            }
+        }
+        kept.sort(NEWEST_FIRST);
+
+        if (!materialLimits.isEmpty()) {
+            final Map<Material, Integer> seen = new EnumMap<>(Material.class);
+            final Iterator<BrokenItemEntry> iterator = kept.iterator();
+            while (iterator.hasNext()) {
+                final BrokenItemEntry entry = iterator.next();
+                final Integer limit = materialLimits.get(entry.getType());
+                if (limit != null && seen.merge(entry.getType(), 1, Integer::sum) > limit) {
+                    expired.add(entry.getId());
+                    iterator.remove();
+                }
+            }
+        }
+
+        if (maxEntries > 0) {
+            for (int i = maxEntries; i < kept.size(); i++) {
+                expired.add(kept.get(i).getId());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Remove every entry of a player that breaks a limit
+     *
+     * @return The number of removed entries
+     */
+    public int enforce(PlayerData playerData) {
+        final Set<String> expired = selectExpired(playerData.getEntries(), System.currentTimeMillis());
+        expired.forEach(playerData::removeEntry);
+        return expired.size();
+    }
+}
@@ -0,0 +1,126 @@
+package dev.fluffyworld.nxbrokenitems.data;
+
+import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.storage.BrokenItemRepository;
+import dev.fluffyworld.nxbrokenitems.storage.ChangeSet;
+import dev.fluffyworld.nxbrokenitems.storage.StorageException;
+import dev.fluffyworld.nxbrokenitems.scheduler.ScheduledTask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Walks every stored player a few at a time and removes entries that break the retention policy.
+ * Players in memory are trimmed on the server thread, everyone else on the persistence executor
+ * under the player's key, with loads of the player held off until their sweep is written.
+ */
+public final class RetentionSweeper {
+
+    private static final Object PLAYER_LIST_KEY = "retention-player-list";
+
+    private final NxBrokenItems plugin;
+    private final BrokenItemRepository repository;
+    private final RetentionPolicy policy;
+    private final int playersPerTick;
+    private final long intervalMillis;
+    private final Queue<UUID> queue = new ConcurrentLinkedQueue<>();
+    private volatile boolean refilling;
+    private volatile long nextPassAt;
+    private final AtomicLong removedThisPass = new AtomicLong();
+    private ScheduledTask task;
+
+    public RetentionSweeper(NxBrokenItems plugin, BrokenItemRepository repository, RetentionPolicy policy) {
+        this.plugin = plugin;
+        this.repository = repository;
+        this.policy = policy;
+        this.playersPerTick = Math.max(1, plugin.getConfig().getInt("retention.sweeper.players-per-tick", 2));
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(
+            Math.max(1L, plugin.getConfig().getLong("retention.sweeper.interval-minutes", 60L)));
+    }
+
+    public void start() {
+        if (!policy.isEnabled() || !plugin.getConfig().getBoolean("retention.sweeper.enabled", true)) {
+            return;
+        }
+        task = plugin.getTaskScheduler().runTimer(this::tick, 20L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+    }
+
+    private void tick() {
+        if (queue.isEmpty()) {
+            finishPass();
+            startNextPass();
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        UUID playerUUID;
+        for (int i = 0; i < playersPerTick && (playerUUID = queue.poll()) != null; i++) {
+            sweep(playerUUID, now);
+        }
+    }
+
+    private void startNextPass() {
+        if (refilling || System.currentTimeMillis() < nextPassAt) {
+            return;
+        }
+
+        refilling = true;
+        plugin.getPersistenceExecutor().submit(PLAYER_LIST_KEY, () -> {
+            try {
+                queue.addAll(repository.listPlayers());
+            } catch (StorageException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to list players for the retention sweep", e);
+            } finally {
+                nextPassAt = System.currentTimeMillis() + intervalMillis;
+                refilling = false;
+            }
+        });
+    }
+
+    private void finishPass() {
+        final long removed = removedThisPass.getAndSet(0);
+        if (removed > 0) {
+            plugin.getLogger().info("Retention sweep removed " + removed + " expired broken items");
+        }
+    }
+
+    private void sweep(UUID playerUUID, long now) {
+        final PlayerData cached = plugin.getDataCache().getIfPresent(playerUUID);
+        if (cached != null) {
+            removedThisPass.addAndGet(policy.enforce(cached));
+            return;
+        }
+
+        // Behind any write queued for the player, and skipped if they were loaded meanwhile
+        plugin.getPersistenceExecutor().submit(playerUUID, () ->
+            plugin.getDataCache().runIfAbsent(playerUUID, () -> sweepStored(playerUUID, now)));
+    }
+
+    private void sweepStored(UUID playerUUID, long now) {
+        try {
+            final List<BrokenItemEntry> entries = repository.list(playerUUID);
+            final Set<String> expired = policy.selectExpired(entries, now);
+            if (expired.isEmpty()) {
+                return;
+            }
+
+            final List<BrokenItemEntry> remaining = new ArrayList<>(entries);
+            remaining.removeIf(entry -> expired.contains(entry.getId()));
+            repository.apply(playerUUID, new ChangeSet(Collections.emptyList(), expired, remaining));
+            removedThisPass.addAndGet(expired.size());
+        } catch (StorageException e) {
+            plugin.getLogger().log(Level.SEVERE, "Retention sweep failed for player: " + playerUUID, e);
+        }
+    }
+}
@@ -1,47 +1,93 @@
 package dev.fluffyworld.nxbrokenitems.gui;
 
 import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.PlayerData;
+import dev.fluffyworld.nxbrokenitems.data.RestorationQuote;
 import dev.fluffyworld.nxbrokenitems.gui.components.*;
-import dev.fluffyworld.nxbrokenitems.utils.MessageUtils;
+import dev.fluffyworld.nxbrokenitems.listeners.components.PlayerStateHolder;
 import me.clip.placeholderapi.PlaceholderAPI;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-public final class BrokenItemsGUI implements Listener {
+public final class BrokenItemsGUI implements Listener, PlayerStateHolder {
 
     private static final String COST_PLACEHOLDER = "{cost}";
+    private static final long SEARCH_TIMEOUT_MILLIS = 60 * 1000L;
+
+    /**
+     * A search prompt waiting for the player's next chat message
+     */
+    private record PendingSearch(MenuSession session, long expiresAt) {
+    }
     
     private final NxBrokenItems plugin;
     private final Economy economy;
-    private final Map<UUID, Integer> playerPageMap = new ConcurrentHashMap<>();
-    private final Map<UUID, ItemStack> selectedItemMap = new ConcurrentHashMap<>();
+    private final PluginSettings settings;
+    private final Map<UUID, MenuSession> sessions = new ConcurrentHashMap<>();
+    private final Map<UUID, PendingSearch> pendingSearches = new ConcurrentHashMap<>();
     
     private final ItemCostCalculator costCalculator;
     private final ItemLogger itemLogger;
     private final InventoryBuilder inventoryBuilder;
-    private final ItemComparator itemComparator;
+    private final BulkRestorer bulkRestorer;
 
     public BrokenItemsGUI(NxBrokenItems plugin, Economy economy) {
         this.plugin = Objects.requireNonNull(plugin, "Plugin cannot be null");
         this.economy = Objects.requireNonNull(economy, "Economy cannot be null");
-        this.costCalculator = new ItemCostCalculator(plugin.getConfig());
-        this.itemLogger = new ItemLogger(plugin.getDataFolder(), plugin.getLogger(), plugin.getConfig());
-        this.inventoryBuilder = new InventoryBuilder(plugin.getConfig(), plugin.getLogger());
-        this.itemComparator = new ItemComparator();
+        this.settings = plugin.getSettings();
+        this.costCalculator = new ItemCostCalculator(settings);
+        this.itemLogger = new ItemLogger(plugin.getLogger(), plugin.getConfig(), plugin.getAuditLog());
+        this.inventoryBuilder = new InventoryBuilder(settings, plugin.getDataCache());
+        this.bulkRestorer = new BulkRestorer(economy, costCalculator, itemLogger, plugin.getDataCache());
         Bukkit.getPluginManager().registerEvents(this, plugin);
+        plugin.getConnectionListener().registerStateHolder(this);
+    }
+
+    /**
+     * Stop handling menu clicks, used when the GUI is replaced on reload
+     */
+    public void unregister() {
+        HandlerList.unregisterAll(this);
+        plugin.getConnectionListener().unregisterStateHolder(this);
+        // Open menus would stop being protected, close them
+        sessions.keySet().forEach(playerUUID -> {
+            final Player player = Bukkit.getPlayer(playerUUID);
+            if (player != null) {
+                plugin.getTaskScheduler().runForEntity(player, player::closeInventory, () -> {
+                });
+            }
+        });
+        sessions.clear();
+        pendingSearches.clear();
+    }
+
+    @Override
+    public void clearPlayerState(UUID playerUUID) {
+        sessions.remove(playerUUID);
+        pendingSearches.remove(playerUUID);
+    }
+
+    @Override
+    public int getPlayerStateCount() {
+        return sessions.size() + pendingSearches.size();
     }
 
     public void openInventory(Player player) {
@@ -50,26 +96,34 @@ public final class BrokenItemsGUI implements Listener {
 
     public void openInventory(Player player, int page) {
         final UUID playerUUID = player.getUniqueId();
-        final FileConfiguration dataConfig = plugin.getDataConfig(playerUUID);
+        final PlayerData playerData = plugin.getDataCache().get(playerUUID);
 
-        if (dataConfig == null || !dataConfig.contains("restoreItem")) {
-            sendMessage(player, "messages.no-broken-items");
+        if (playerData.isEmpty()) {
+            sendMessage(player, "no-broken-items");
             return;
         }
 
-        final FileConfiguration config = plugin.getConfig();
-        final String title = MessageUtils.colorize(config.getString("menu.restore.title", "&cBroken Items List"));
-        final int size = config.getInt("menu.restore.size", 54);
+        final MenuSession session = sessions.getOrDefault(playerUUID, new MenuSession(playerUUID));
+        session.setPage(page);
+        openInventory(player, session, playerData);
+    }
 
-        final List<ItemStack> items = inventoryBuilder.loadBrokenItems(dataConfig);
-        final Inventory inventory = inventoryBuilder.createBrokenItemsInventory(items, page, title, size);
+    private void openInventory(Player player, MenuSession session, PlayerData playerData) {
+        session.setSelectedEntryId(null);
 
-        player.openInventory(inventory);
-        playerPageMap.put(playerUUID, page);
+        final Inventory inventory = inventoryBuilder.createBrokenItemsInventory(playerData, session,
+            settings.getRestoreTitle(), settings.getRestoreSize());
+
+        openMenu(player, session, inventory);
     }
 
-    private List<ItemStack> loadBrokenItems(FileConfiguration dataConfig) {
-        return inventoryBuilder.loadBrokenItems(dataConfig);
+    /**
+     * Open a menu of the session; closing the previous menu ends the session, so it is registered afterwards
+     */
+    private void openMenu(Player player, MenuSession session, Inventory inventory) {
+        pendingSearches.remove(player.getUniqueId());
+        player.openInventory(inventory);
+        sessions.put(player.getUniqueId(), session);
     }
 
     private ItemStack createNavigationItem(String type) {
@@ -78,210 +132,301 @@ public final class BrokenItemsGUI implements Listener {
 
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        if (!(event.getWhoClicked() instanceof Player player)) {
+        final MenuHolder holder = getMenuHolder(event.getWhoClicked().getUniqueId(), event.getView());
+        if (holder == null || !(event.getWhoClicked() instanceof Player player)) {
             return;
         }
 
-        final String title = event.getView().getTitle();
-        final FileConfiguration config = plugin.getConfig();
-        
-        final String listTitlePrefix = MessageUtils.colorize(
-            config.getString("menu.restore.title", "&cBroken Items List"));
-        final String confirmTitlePrefix = MessageUtils.colorize(
-            config.getString("menu.confirm.title", "&cConfirm Action"));
+        event.setCancelled(true);
+        if (event.getRawSlot() < 0 || event.getRawSlot() >= event.getView().getTopInventory().getSize()) {
+            return;
+        }
 
-        if (title.startsWith(listTitlePrefix)) {
-            handleListMenuClick(event, player);
-        } else if (title.startsWith(confirmTitlePrefix)) {
-            handleConfirmMenuClick(event, player);
+        switch (holder.getType()) {
+            case LIST -> handleListMenuClick(event, player, holder.getSession());
+            case CONFIRM -> handleConfirmMenuClick(event, player, holder.getSession());
         }
     }
 
-    private void handleListMenuClick(InventoryClickEvent event, Player player) {
-        event.setCancelled(true);
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (getMenuHolder(event.getWhoClicked().getUniqueId(), event.getView()) != null) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        final MenuHolder holder = getMenuHolder(event.getPlayer().getUniqueId(), event.getView());
+        if (holder != null) {
+            sessions.remove(event.getPlayer().getUniqueId(), holder.getSession());
+        }
+    }
+
+    /**
+     * Get the menu shown in a view; players without a session are rejected before the holder is looked up
+     */
+    private MenuHolder getMenuHolder(UUID playerUUID, InventoryView view) {
+        if (!sessions.containsKey(playerUUID)) {
+            return null;
+        }
+        return view.getTopInventory().getHolder() instanceof MenuHolder holder ? holder : null;
+    }
 
+    private void handleListMenuClick(InventoryClickEvent event, Player player, MenuSession session) {
         final ItemStack clickedItem = event.getCurrentItem();
         if (clickedItem == null || clickedItem.getType() == Material.AIR) {
             return;
         }
 
-        final FileConfiguration config = plugin.getConfig();
-        final String nextPageName = MessageUtils.colorize(
-            config.getString("menu.restore.navigation-buttons.next-page.display-name", "&aNext Page"));
-        final String prevPageName = MessageUtils.colorize(
-            config.getString("menu.restore.navigation-buttons.previous-page.display-name", "&aPrevious Page"));
+        final int slot = event.getRawSlot();
+        if (slot == settings.getNextPageButton().slot()) {
+            openInventory(player, session.getPage() + 1);
+            return;
+        } else if (slot == settings.getPreviousPageButton().slot()) {
+            openInventory(player, session.getPage() - 1);
+            return;
+        } else if (slot == settings.getSortButton().slot()) {
+            session.setQuery(session.getQuery().withSort(session.getQuery().sort().next()));
+            openInventory(player, session.getPage());
+            return;
+        } else if (slot == settings.getFilterButton().slot()) {
+            session.setQuery(session.getQuery().withFilter(session.getQuery().filter().next()));
+            openInventory(player, session.getPage());
+            return;
+        } else if (slot == settings.getSearchButton().slot()) {
+            promptSearch(player, session);
+            return;
+        } else if (slot == settings.getSelectButton().slot()) {
+            session.setSelecting(!session.isSelecting());
+            openInventory(player, session.getPage());
+            return;
+        } else if (slot == settings.getRestoreSelectedButton().slot() && session.isSelecting()) {
+            restoreSelected(player, session);
+            return;
+        } else if (slot == settings.getRestoreAllButton().slot()) {
+            restoreAll(player);
+            return;
+        }
 
-        final ItemMeta meta = clickedItem.getItemMeta();
-        if (meta != null && meta.getDisplayName() != null) {
-            final String itemName = meta.getDisplayName();
-            final UUID playerUUID = player.getUniqueId();
-            final int currentPage = playerPageMap.getOrDefault(playerUUID, 0);
+        final String entryId = session.getEntryId(slot);
+        if (entryId == null) {
+            return;
+        }
+        if (session.isSelecting()) {
+            togglePicked(event, player, session, entryId);
+        } else {
+            openConfirmationMenu(player, session, entryId);
+        }
+    }
 
-            if (itemName.equals(nextPageName)) {
-                openInventory(player, currentPage + 1);
-                return;
-            } else if (itemName.equals(prevPageName)) {
-                openInventory(player, currentPage - 1);
+    /**
+     * Close the menu and read the search text from the player's next chat message, if it comes within a minute.
+     * Opening a menu again drops the prompt.
+     */
+    private void promptSearch(Player player, MenuSession session) {
+        player.closeInventory();
+        pendingSearches.put(player.getUniqueId(),
+            new PendingSearch(session, System.currentTimeMillis() + SEARCH_TIMEOUT_MILLIS));
+        sendMessage(player, "search-prompt");
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerChat(AsyncPlayerChatEvent event) {
+        final Player player = event.getPlayer();
+        final PendingSearch pending = pendingSearches.remove(player.getUniqueId());
+        if (pending == null || System.currentTimeMillis() > pending.expiresAt()) {
+            return;
+        }
+
+        event.setCancelled(true);
+        final String message = event.getMessage();
+        final String search = message.equalsIgnoreCase("cancel") ? "" : message;
+        // Chat arrives off the player's thread, the session is only touched back on it
+        plugin.getTaskScheduler().runForEntity(player, () -> {
+            final MenuSession session = pending.session();
+            session.setQuery(session.getQuery().withSearch(search));
+            final PlayerData playerData = plugin.getDataCache().get(player.getUniqueId());
+            if (playerData.isEmpty()) {
+                sendMessage(player, "no-broken-items");
                 return;
             }
-        }
+            openInventory(player, session, playerData);
+        }, () -> {
+        });
+    }
 
-        if (isBrokenItem(player, clickedItem)) {
-            openConfirmationMenu(player, clickedItem);
+    /**
+     * Pick or unpick an entry, redrawing only its slot
+     */
+    private void togglePicked(InventoryClickEvent event, Player player, MenuSession session, String entryId) {
+        final BrokenItemEntry entry = plugin.getDataCache().get(player.getUniqueId()).getEntry(entryId);
+        if (entry == null) {
+            // Restored or deleted since the page was drawn
+            openInventory(player, session.getPage());
+            return;
         }
+        final boolean picked = session.togglePicked(entryId);
+        event.getView().getTopInventory().setItem(event.getRawSlot(), inventoryBuilder.createDisplayItem(entry, picked));
     }
 
-    private boolean isBrokenItem(Player player, ItemStack item) {
-        final UUID playerUUID = player.getUniqueId();
-        final FileConfiguration dataConfig = plugin.getDataConfig(playerUUID);
-        
-        if (dataConfig == null || !dataConfig.contains("restoreItem")) {
-            return false;
+    /**
+     * Restore every entry the player can afford and has room for, oldest first
+     */
+    public void restoreAll(Player player) {
+        final PlayerData playerData = plugin.getDataCache().get(player.getUniqueId());
+        if (playerData.isEmpty()) {
+            sendMessage(player, "no-broken-items");
+            return;
         }
+        bulkRestore(player, playerData, playerData.getEntries());
+    }
 
-        final List<ItemStack> brokenItems = inventoryBuilder.loadBrokenItems(dataConfig);
-        return brokenItems.stream().anyMatch(brokenItem -> ItemComparator.isSameItem(brokenItem, item));
+    private void restoreSelected(Player player, MenuSession session) {
+        final PlayerData playerData = plugin.getDataCache().get(player.getUniqueId());
+        final List<BrokenItemEntry> picked = new ArrayList<>();
+        for (String entryId : session.getPickedEntryIds()) {
+            final BrokenItemEntry entry = playerData.getEntry(entryId);
+            if (entry != null) {
+                picked.add(entry);
+            }
+        }
+        if (picked.isEmpty()) {
+            sendMessage(player, "bulk-restore-nothing-selected");
+            return;
+        }
+        bulkRestore(player, playerData, picked);
     }
 
-    private void openConfirmationMenu(Player player, ItemStack selectedItem) {
-        final FileConfiguration config = plugin.getConfig();
-        final String title = MessageUtils.colorize(
-            config.getString("menu.confirm.title", "&cConfirm Action"));
-        final int size = config.getInt("menu.confirm.size", 27);
+    private void bulkRestore(Player player, PlayerData playerData, List<BrokenItemEntry> candidates) {
+        if (PlaceholderAPI.setPlaceholders(player, settings.getInventoryFullPlaceholder())
+                .equalsIgnoreCase(settings.getInventoryFullValue())) {
+            sendMessage(player, "inventory-full");
+            return;
+        }
+
+        final BulkRestorer.Result result = bulkRestorer.restore(player, playerData, candidates);
+        player.closeInventory();
+        if (result.restored() == 0) {
+            sendMessage(player, "bulk-restore-none");
+            return;
+        }
+        player.sendMessage(settings.getMessage("bulk-restore-success")
+            .replace("{count}", String.valueOf(result.restored()))
+            .replace(COST_PLACEHOLDER, String.valueOf(result.cost())));
+        if (result.skipped() > 0) {
+            player.sendMessage(settings.getMessage("bulk-restore-skipped")
+                .replace("{count}", String.valueOf(result.skipped())));
+        }
+        if (result.remaining() > 0) {
+            player.sendMessage(settings.getMessage("bulk-restore-remaining")
+                .replace("{count}", String.valueOf(result.remaining())));
+        }
+    }
 
-        final Inventory confirmInventory = inventoryBuilder.createConfirmationInventory(title, size);
+    private void openConfirmationMenu(Player player, MenuSession session, String entryId) {
+        final Inventory confirmInventory = inventoryBuilder.createConfirmationInventory(session,
+            settings.getConfirmTitle(), settings.getConfirmSize());
 
-        player.openInventory(confirmInventory);
-        selectedItemMap.put(player.getUniqueId(), selectedItem);
+        session.setSelectedEntryId(entryId);
+        openMenu(player, session, confirmInventory);
     }
 
     private ItemStack createConfirmButton(String type) {
         return null;
     }
 
-    private void handleConfirmMenuClick(InventoryClickEvent event, Player player) {
-        event.setCancelled(true);
-
+    private void handleConfirmMenuClick(InventoryClickEvent event, Player player, MenuSession session) {
         final ItemStack clickedItem = event.getCurrentItem();
         if (clickedItem == null || clickedItem.getType() == Material.AIR) {
             return;
         }
 
-        final ItemMeta meta = clickedItem.getItemMeta();
-        if (meta == null || meta.getDisplayName() == null) {
-            return;
-        }
-
-        final FileConfiguration config = plugin.getConfig();
-        final String itemName = meta.getDisplayName();
-        final String restoreName = MessageUtils.colorize(
-            config.getString("menu.confirm.buttons.restore.display-name", "&aRestore"));
-        final String deleteName = MessageUtils.colorize(
-            config.getString("menu.confirm.buttons.delete.display-name", "&cDelete"));
-        final String backName = MessageUtils.colorize(
-            config.getString("menu.confirm.buttons.back.display-name", "&e&lBack to List"));
-
-        final UUID playerUUID = player.getUniqueId();
-
-        if (itemName.equals(backName)) {
-            selectedItemMap.remove(playerUUID);
-            final int currentPage = playerPageMap.getOrDefault(playerUUID, 0);
-            openInventory(player, currentPage);
+        final int slot = event.getRawSlot();
+        if (slot == settings.getBackButton().slot()) {
+            openInventory(player, session.getPage());
             return;
         }
 
-        final ItemStack selectedItem = selectedItemMap.get(playerUUID);
+        final String entryId = session.getSelectedEntryId();
 
-        if (selectedItem == null) {
+        if (entryId == null) {
             player.closeInventory();
             return;
         }
 
-        if (itemName.equals(restoreName)) {
-            handleItemRestoration(player, selectedItem);
-        } else if (itemName.equals(deleteName)) {
-            handleItemDeletion(player, selectedItem);
+        if (slot == settings.getRestoreButton().slot()) {
+            handleItemRestoration(player, entryId);
+        } else if (slot == settings.getDeleteButton().slot()) {
+            handleItemDeletion(player, entryId);
         }
 
-        selectedItemMap.remove(playerUUID);
-    }
-
-    private int calculateRestorationCost(ItemStack item) {
-        return costCalculator.calculateRestorationCost(item);
+        session.setSelectedEntryId(null);
     }
 
     private void addRestorationCostLore(ItemStack item) {
         inventoryBuilder.addRestorationCostLore(item);
     }
 
-    private void handleItemRestoration(Player player, ItemStack item) {
+    private void handleItemRestoration(Player player, String entryId) {
         final UUID playerUUID = player.getUniqueId();
-        final FileConfiguration dataConfig = plugin.getDataConfig(playerUUID);
-        
-        if (dataConfig == null) {
-            sendMessage(player, "messages.no-broken-items");
+        final PlayerData playerData = plugin.getDataCache().get(playerUUID);
+        final BrokenItemEntry entry = playerData.getEntry(entryId);
+
+        if (entry == null) {
+            // Restored or deleted since the menu was opened
+            player.closeInventory();
+            sendMessage(player, "no-broken-items");
             return;
         }
 
-        final int cost = calculateRestorationCost(item) * item.getAmount();
+        final ItemStack item;
+        try {
+            item = entry.getItem();
+        } catch (IllegalStateException e) {
+            plugin.getDataCache().quarantine(playerData, entry, e);
+            player.closeInventory();
+            return;
+        }
 
-        final FileConfiguration config = plugin.getConfig();
-        final String inventoryFullPlaceholder = config.getString("placeholderapi.inventory-full-placeholder", "%fluffy_isfull%");
-        final String inventoryFullValue = config.getString("placeholderapi.inventory-full-value", "true");
+        final RestorationQuote quote = costCalculator.quote(entry);
+        final int cost = quote.cost() * item.getAmount();
 
-        if (PlaceholderAPI.setPlaceholders(player, inventoryFullPlaceholder).equalsIgnoreCase(inventoryFullValue)) {
-            sendMessage(player, "messages.inventory-full");
+        if (PlaceholderAPI.setPlaceholders(player, settings.getInventoryFullPlaceholder())
+                .equalsIgnoreCase(settings.getInventoryFullValue())) {
+            sendMessage(player, "inventory-full");
             return;
         }
 
         if (!economy.has(player, cost)) {
-            player.sendMessage(MessageUtils.colorize(
-                config.getString("messages.not-enough-money")
-                    .replace(COST_PLACEHOLDER, String.valueOf(cost))));
+            player.sendMessage(settings.getMessage("not-enough-money")
+                .replace(COST_PLACEHOLDER, String.valueOf(cost)));
             return;
         }
 
-        final ConfigurationSection restoreSection = dataConfig.getConfigurationSection("restoreItem");
-        if (restoreSection == null) {
-            sendMessage(player, "messages.no-broken-items");
+        if (entry.isBlacklisted()) {
+            player.closeInventory();
+            sendMessage(player, "blacklisted-item");
+            sendMessage(player, "contact-admin");
             return;
         }
 
-        for (String key : restoreSection.getKeys(false)) {
-            ItemStack storedItem = dataConfig.getItemStack("restoreItem." + key + ".item");
-            if (storedItem == null) {
-                storedItem = dataConfig.getItemStack("restoreItem." + key);
-            }
-            
-            if (storedItem != null && isSameItem(storedItem, item)) {
-                boolean isBlacklisted = dataConfig.getBoolean("restoreItem." + key + ".blacklisted", false);
-                
-                if (isBlacklisted) {
-                    player.closeInventory();
-                    sendMessage(player, "messages.blacklisted-item");
-                    sendMessage(player, "messages.contact-admin");
-                    return;
-                }
-                
-                processRestoration(player, playerUUID, item, storedItem, cost, key, dataConfig);
-                return;
-            }
-        }
+        processRestoration(player, item, cost, quote, entry, playerData);
     }
 
-    private void processRestoration(Player player, UUID playerUUID, ItemStack displayItem, 
-                                   ItemStack storedItem, int cost, String key, 
-                                   FileConfiguration dataConfig) {
-        final ItemStack cleanItem = inventoryBuilder.removeCostLore(displayItem.clone());
-        
-        player.getInventory().addItem(cleanItem);
+    private void processRestoration(Player player, ItemStack item, int cost, RestorationQuote quote,
+                                   BrokenItemEntry entry, PlayerData playerData) {
+        // Removing first means a second click can never hand out the same entry twice
+        if (playerData.removeEntry(entry.getId()) == null) {
+            player.closeInventory();
+            return;
+        }
+
+        player.getInventory().addItem(item);
         economy.withdrawPlayer(player, cost);
         
-        dataConfig.set("restoreItem." + key, null);
-        plugin.saveDataFile(playerUUID, dataConfig);
-        
-        sendMessage(player, "messages.restore-success");
-        itemLogger.logRecovery(player.getName(), cleanItem);
+        sendMessage(player, "restore-success");
+        itemLogger.logRecovery(player.getName(), item, cost, quote.rule());
         
         player.closeInventory();
     }
@@ -290,51 +435,23 @@ public final class BrokenItemsGUI implements Listener {
         return inventoryBuilder.removeCostLore(item);
     }
 
-    private boolean isSameItem(ItemStack item1, ItemStack item2) {
-        return ItemComparator.isSameItem(item1, item2);
-    }
-
-    private void logRecovery(String playerName, ItemStack item) {
-        itemLogger.logRecovery(playerName, item);
-    }
-
-    private void sendMessage(Player player, String path) {
-        final String message = plugin.getConfig().getString(path);
-        if (message != null && !message.isEmpty()) {
-            player.sendMessage(MessageUtils.colorize(message));
+    private void sendMessage(Player player, String key) {
+        final String message = settings.getMessage(key);
+        if (!message.isEmpty()) {
+            player.sendMessage(message);
         }
     }
 
-    private void handleItemDeletion(Player player, ItemStack item) {
-        final UUID playerUUID = player.getUniqueId();
-        final FileConfiguration dataConfig = plugin.getDataConfig(playerUUID);
-
-        if (dataConfig == null) {
-            player.closeInventory();
-            return;
-        }
-
-        final ConfigurationSection restoreSection = dataConfig.getConfigurationSection("restoreItem");
-        if (restoreSection == null) {
-            player.closeInventory();
-            return;
-        }
+    private void handleItemDeletion(Player player, String entryId) {
+        final PlayerData playerData = plugin.getDataCache().get(player.getUniqueId());
 
-        final ItemStack cleanItem = inventoryBuilder.removeCostLore(item.clone());
-
-        for (String key : restoreSection.getKeys(false)) {
-            ItemStack storedItem = dataConfig.getItemStack("restoreItem." + key + ".item");
-            if (storedItem == null) {
-                storedItem = dataConfig.getItemStack("restoreItem." + key);
-            }
-            
-            if (storedItem != null && ItemComparator.isSameItem(storedItem, cleanItem)) {
-                dataConfig.set("restoreItem." + key, null);
-                plugin.saveDataFile(playerUUID, dataConfig);
-                sendMessage(player, "messages.delete-success");
-                itemLogger.logDeletion(player.getName(), cleanItem);
-                player.closeInventory();
-                return;
+        final BrokenItemEntry entry = playerData.removeEntry(entryId);
+        if (entry != null) {
+            sendMessage(player, "delete-success");
+            try {
+                itemLogger.logDeletion(player.getName(), entry.getItem());
+            } catch (IllegalStateException e) {
+                plugin.getLogger().warning("Deleted unreadable item " + entryId + " of " + player.getName());
             }
         }
 
@@ -0,0 +1,133 @@
+package dev.fluffyworld.nxbrokenitems.gui;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.gui.components.MenuQuery;
+
+import java.util.*;
+
+/**
+ * State of one player's walk through the restore menus, carried by the menus it opens
+ */
+public final class MenuSession {
+
+    private final UUID playerUUID;
+    private int page;
+    private String[] slotEntryIds = new String[0];
+    private String selectedEntryId;
+    private boolean selecting;
+    private final Set<String> pickedEntryIds = new LinkedHashSet<>();
+    private MenuQuery query = MenuQuery.DEFAULT;
+    private List<BrokenItemEntry> view;
+    private MenuQuery viewQuery;
+    private long viewVersion;
+
+    public MenuSession(UUID playerUUID) {
+        this.playerUUID = Objects.requireNonNull(playerUUID, "Player UUID cannot be null");
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public MenuQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Change the sort, filter or search, starting again from the first page
+     */
+    public void setQuery(MenuQuery query) {
+        this.query = Objects.requireNonNull(query, "Query cannot be null");
+        this.page = 0;
+    }
+
+    /**
+     * @return The entries matching the current query, or null if the player's data changed since they were listed
+     */
+    public List<BrokenItemEntry> getCachedView(long dataVersion) {
+        return view != null && viewVersion == dataVersion && query.equals(viewQuery) ? view : null;
+    }
+
+    /**
+     * Keep the entries matching the current query, so page flips do not filter and sort again
+     */
+    public void cacheView(List<BrokenItemEntry> view, long dataVersion) {
+        this.view = view;
+        this.viewQuery = query;
+        this.viewVersion = dataVersion;
+    }
+
+    /**
+     * Record which entry the rendered page shows in each slot, index = slot
+     */
+    public void setSlotEntryIds(String[] slotEntryIds) {
+        this.slotEntryIds = Arrays.copyOf(slotEntryIds, slotEntryIds.length);
+    }
+
+    /**
+     * @return The id of the entry shown in a slot of the list menu, or null
+     */
+    public String getEntryId(int slot) {
+        return slot >= 0 && slot < slotEntryIds.length ? slotEntryIds[slot] : null;
+    }
+
+    /**
+     * @return The id of the entry picked for the confirmation menu, or null
+     */
+    public String getSelectedEntryId() {
+        return selectedEntryId;
+    }
+
+    public void setSelectedEntryId(String selectedEntryId) {
+        this.selectedEntryId = selectedEntryId;
+    }
+
+    /**
+     * Check whether clicking an entry picks it for a bulk restore instead of opening the confirmation menu
+     */
+    public boolean isSelecting() {
+        return selecting;
+    }
+
+    /**
+     * Switch select mode, leaving it forgets the picked entries
+     */
+    public void setSelecting(boolean selecting) {
+        this.selecting = selecting;
+        if (!selecting) {
+            pickedEntryIds.clear();
+        }
+    }
+
+    /**
+     * Pick or unpick an entry for a bulk restore
+     *
+     * @return true if the entry is picked now
+     */
+    public boolean togglePicked(String entryId) {
+        if (pickedEntryIds.remove(entryId)) {
+            return false;
+        }
+        pickedEntryIds.add(entryId);
+        return true;
+    }
+
+    public boolean isPicked(String entryId) {
+        return pickedEntryIds.contains(entryId);
+    }
+
+    /**
+     * Get the picked entry ids in the order they were picked
+     */
+    public List<String> getPickedEntryIds() {
+        return new ArrayList<>(pickedEntryIds);
+    }
+}
@@ -0,0 +1,121 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.PlayerData;
+import dev.fluffyworld.nxbrokenitems.data.PlayerDataCache;
+import dev.fluffyworld.nxbrokenitems.data.RestorationQuote;
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+
+/**
+ * Restores several entries of a player as one transaction.
+ * Entries are picked in order while they fit the free inventory slots and the player's balance,
+ * then removed in one storage change, paid for with one withdrawal and logged as one batch.
+ */
+public final class BulkRestorer {
+
+    /**
+     * @param restored  Number of entries restored
+     * @param cost      Total cost withdrawn
+     * @param skipped   Number of entries tried and left because of money or the blacklist
+     * @param remaining Number of entries not tried because the inventory was full
+     */
+    public record Result(int restored, long cost, int skipped, int remaining) {
+    }
+
+    private record Pick(BrokenItemEntry entry, ItemStack item, RestorationQuote quote, int cost) {
+    }
+
+    private final Economy economy;
+    private final ItemCostCalculator costCalculator;
+    private final ItemLogger itemLogger;
+    private final PlayerDataCache dataCache;
+
+    public BulkRestorer(Economy economy, ItemCostCalculator costCalculator, ItemLogger itemLogger,
+                        PlayerDataCache dataCache) {
+        this.economy = Objects.requireNonNull(economy, "Economy cannot be null");
+        this.costCalculator = Objects.requireNonNull(costCalculator, "Cost calculator cannot be null");
+        this.itemLogger = Objects.requireNonNull(itemLogger, "Item logger cannot be null");
+        this.dataCache = Objects.requireNonNull(dataCache, "Data cache cannot be null");
+    }
+
+    /**
+     * Restore as many of the candidates as the player has room for and can afford, in candidate order.
+     * Must run on the player's thread.
+     */
+    public Result restore(Player player, PlayerData playerData, List<BrokenItemEntry> candidates) {
+        final int freeSlots = countFreeSlots(player);
+        final double balance = economy.getBalance(player);
+
+        final Map<String, Pick> picks = new LinkedHashMap<>();
+        long total = 0;
+        int skipped = 0;
+        int tried = 0;
+        for (BrokenItemEntry entry : candidates) {
+            if (picks.size() >= freeSlots) {
+                break;
+            }
+            tried++;
+            if (entry.isBlacklisted()) {
+                skipped++;
+                continue;
+            }
+            final ItemStack item;
+            try {
+                item = entry.getItem();
+            } catch (IllegalStateException e) {
+                dataCache.quarantine(playerData, entry, e);
+                continue;
+            }
+            final RestorationQuote quote = costCalculator.quote(entry);
+            final int cost = quote.cost() * item.getAmount();
+            // A cheaper entry further down may still fit what is left
+            if (total + cost > balance) {
+                skipped++;
+                continue;
+            }
+            picks.put(entry.getId(), new Pick(entry, item, quote, cost));
+            total += cost;
+        }
+        final int remaining = candidates.size() - tried;
+        if (picks.isEmpty()) {
+            return new Result(0, 0, skipped, remaining);
+        }
+
+        // Removing first means a concurrent click can never hand out the same entry twice
+        final List<BrokenItemEntry> removed = playerData.removeEntries(picks.keySet());
+        final List<ItemStack> items = new ArrayList<>(removed.size());
+        final List<ItemLogger.Recovery> recoveries = new ArrayList<>(removed.size());
+        long cost = 0;
+        for (BrokenItemEntry entry : removed) {
+            final Pick pick = picks.get(entry.getId());
+            items.add(pick.item());
+            recoveries.add(new ItemLogger.Recovery(pick.item(), pick.cost(), pick.quote().rule()));
+            cost += pick.cost();
+        }
+        if (items.isEmpty()) {
+            return new Result(0, 0, skipped, remaining);
+        }
+
+        final Map<Integer, ItemStack> leftover = player.getInventory().addItem(items.toArray(new ItemStack[0]));
+        leftover.values().forEach(item -> player.getWorld().dropItemNaturally(player.getLocation(), item));
+        if (cost > 0) {
+            economy.withdrawPlayer(player, cost);
+        }
+        itemLogger.logRecoveries(player.getName(), recoveries);
+        return new Result(items.size(), cost, skipped, remaining);
+    }
+
+    private static int countFreeSlots(Player player) {
+        int free = 0;
+        for (ItemStack item : player.getInventory().getStorageContents()) {
+            if (item == null || item.getType().isAir()) {
+                free++;
+            }
+        }
+        return free;
+    }
+}
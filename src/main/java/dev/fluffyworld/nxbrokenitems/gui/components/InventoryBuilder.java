@@ -1,100 +1,145 @@
 package dev.fluffyworld.nxbrokenitems.gui.components;
 
-import dev.fluffyworld.nxbrokenitems.utils.MessageUtils;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.PlayerData;
+import dev.fluffyworld.nxbrokenitems.data.PlayerDataCache;
+import dev.fluffyworld.nxbrokenitems.gui.MenuSession;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public final class InventoryBuilder {
 
-    private static final String COST_PLACEHOLDER = "{cost}";
-
-    private final FileConfiguration config;
-    private final Logger logger;
+    private final PluginSettings settings;
     private final ItemCostCalculator costCalculator;
+    private final PlayerDataCache dataCache;
 
-    public InventoryBuilder(FileConfiguration config, Logger logger) {
-        this.config = config;
-        this.logger = logger;
-        this.costCalculator = new ItemCostCalculator(config);
+    public InventoryBuilder(PluginSettings settings, PlayerDataCache dataCache) {
+        this.settings = settings;
+        this.dataCache = dataCache;
+        this.costCalculator = new ItemCostCalculator(settings);
     }
 
-    public Inventory createBrokenItemsInventory(List<ItemStack> items, int page, String title, int size) {
-        final int itemsPerPageOffset = config.getInt("menu.restore.items-per-page-offset", 9);
-        final int itemsPerPage = size - itemsPerPageOffset;
-        final Inventory inventory = Bukkit.createInventory(null, size, title);
+    /**
+     * Render the session's page of entries and record in the session which entry sits in each slot.
+     * Only the items on the page are deserialised and decorated.
+     */
+    public Inventory createBrokenItemsInventory(PlayerData playerData, MenuSession session, String title, int size) {
+        final int itemsPerPage = settings.getItemsPerPage();
+        // Storage order needs no view, the page is read straight from the player's data
+        final List<BrokenItemEntry> view = session.getQuery().isDefault() ? null : getView(playerData, session);
+        final int total = view != null ? view.size() : playerData.size();
+        // Entries may have been restored or deleted since the page was picked
+        final int lastPage = Math.max(0, (total - 1) / itemsPerPage);
+        final int page = Math.max(0, Math.min(session.getPage(), lastPage));
+        session.setPage(page);
+        final Inventory inventory = createMenu(MenuHolder.Type.LIST, session, size, title);
 
         final int startIndex = page * itemsPerPage;
-        final int endIndex = Math.min(startIndex + itemsPerPage, items.size());
-
-        items.subList(startIndex, endIndex).forEach(inventory::addItem);
+        final List<BrokenItemEntry> entries = view != null
+            ? view.subList(Math.min(startIndex, total), Math.min(startIndex + itemsPerPage, total))
+            : playerData.getEntries(startIndex, itemsPerPage);
+        final int endIndex = startIndex + entries.size();
+
+        final String[] slotEntryIds = new String[size];
+        for (int slot = 0; slot < entries.size(); slot++) {
+            final BrokenItemEntry entry = entries.get(slot);
+            try {
+                inventory.setItem(slot, createDisplayItem(entry, session.isPicked(entry.getId())));
+            } catch (IllegalStateException e) {
+                // One corrupt item must not break the menu, its slot stays empty
+                dataCache.quarantine(playerData, entry, e);
+                continue;
+            }
+            slotEntryIds[slot] = entry.getId();
+        }
+        session.setSlotEntryIds(slotEntryIds);
 
         if (page > 0) {
-            final int prevSlot = config.getInt("menu.restore.navigation-buttons.previous-page.slot", -9);
-            final int prevSlotCalculated = prevSlot < 0 ? size + prevSlot : prevSlot;
-            inventory.setItem(prevSlotCalculated, createNavigationItem("previous-page"));
+            final PluginSettings.MenuButton previousPage = settings.getPreviousPageButton();
+            inventory.setItem(previousPage.slot(), createButton(previousPage));
         }
 
-        if (endIndex < items.size()) {
-            final int nextSlot = config.getInt("menu.restore.navigation-buttons.next-page.slot", -1);
-            final int nextSlotCalculated = nextSlot < 0 ? size + nextSlot : nextSlot;
-            inventory.setItem(nextSlotCalculated, createNavigationItem("next-page"));
+        if (endIndex < total) {
+            final PluginSettings.MenuButton nextPage = settings.getNextPageButton();
+            inventory.setItem(nextPage.slot(), createButton(nextPage));
         }
 
+        final MenuQuery query = session.getQuery();
+        inventory.setItem(settings.getSortButton().slot(),
+            createButton(settings.getSortButton(), settings.getQueryLabel(query.sort())));
+        inventory.setItem(settings.getFilterButton().slot(),
+            createButton(settings.getFilterButton(), settings.getQueryLabel(query.filter())));
+        inventory.setItem(settings.getSearchButton().slot(), createButton(settings.getSearchButton(),
+            query.search() != null ? query.search() : settings.getQueryLabel(null)));
+        inventory.setItem(settings.getSelectButton().slot(), createButton(settings.getSelectButton()));
+        if (session.isSelecting()) {
+            inventory.setItem(settings.getRestoreSelectedButton().slot(),
+                createButton(settings.getRestoreSelectedButton()));
+        }
+        inventory.setItem(settings.getRestoreAllButton().slot(), createButton(settings.getRestoreAllButton()));
+
         return inventory;
     }
 
-    public Inventory createConfirmationInventory(String title, int size) {
-        final Inventory confirmInventory = Bukkit.createInventory(null, size, title);
-        
-        final int restoreSlot = config.getInt("menu.confirm.buttons.restore.slot", 11);
-        final int deleteSlot = config.getInt("menu.confirm.buttons.delete.slot", 15);
-        final int backSlot = config.getInt("menu.confirm.buttons.back.slot", 13);
+    /**
+     * Get the session's entries matching its query, filtering and sorting again only when the query
+     * or the player's entries changed
+     */
+    private List<BrokenItemEntry> getView(PlayerData playerData, MenuSession session) {
+        final long version = playerData.getVersion();
+        List<BrokenItemEntry> view = session.getCachedView(version);
+        if (view == null) {
+            view = session.getQuery().apply(playerData.getEntries(), costCalculator);
+            session.cacheView(view, version);
+        }
+        return view;
+    }
+
+    public Inventory createConfirmationInventory(MenuSession session, String title, int size) {
+        final Inventory confirmInventory = createMenu(MenuHolder.Type.CONFIRM, session, size, title);
         
-        confirmInventory.setItem(restoreSlot, createConfirmButton("restore"));
-        confirmInventory.setItem(deleteSlot, createConfirmButton("delete"));
-        confirmInventory.setItem(backSlot, createConfirmButton("back"));
+        confirmInventory.setItem(settings.getRestoreButton().slot(), createButton(settings.getRestoreButton()));
+        confirmInventory.setItem(settings.getDeleteButton().slot(), createButton(settings.getDeleteButton()));
+        confirmInventory.setItem(settings.getBackButton().slot(), createButton(settings.getBackButton()));
         
         return confirmInventory;
     }
 
-    public List<ItemStack> loadBrokenItems(FileConfiguration dataConfig) {
-        final ConfigurationSection restoreSection = dataConfig.getConfigurationSection("restoreItem");
-        if (restoreSection == null) {
-            return Collections.emptyList();
-        }
+    /**
+     * Copy an entry's item with its restoration cost added to the lore
+     */
+    public ItemStack createDisplayItem(BrokenItemEntry entry) {
+        return createDisplayItem(entry, false);
+    }
 
-        return restoreSection.getKeys(false).stream()
-            .map(key -> {
-                ItemStack item = dataConfig.getItemStack("restoreItem." + key + ".item");
-                if (item == null) {
-                    item = dataConfig.getItemStack("restoreItem." + key);
-                }
-                return item;
-            })
-            .filter(Objects::nonNull)
-            .peek(this::addRestorationCostLore)
-            .collect(Collectors.toList());
+    /**
+     * Copy an entry's item with its restoration cost, and the selected marker if it is picked in select mode
+     */
+    public ItemStack createDisplayItem(BrokenItemEntry entry, boolean picked) {
+        final ItemStack item = entry.getItem();
+        addRestorationCostLore(item, costCalculator.quote(entry).cost());
+        if (picked) {
+            addLore(item, settings.getSelectedLore());
+        }
+        return item;
     }
 
     public void addRestorationCostLore(ItemStack item) {
-        final int cost = costCalculator.calculateRestorationCost(item);
-        final String loreFormat = config.getString(
-            "menu.restore.lore.format", "&eRestoration Cost: &6{cost}");
-        final String formattedLore = MessageUtils.colorize(
-            loreFormat.replace(COST_PLACEHOLDER, String.valueOf(cost)));
+        addRestorationCostLore(item, costCalculator.quote(item).cost());
+    }
+
+    private void addRestorationCostLore(ItemStack item, int cost) {
+        addLore(item, settings.formatCostLore(cost));
+    }
 
+    private static void addLore(ItemStack item, String formattedLore) {
         final ItemMeta meta = item.getItemMeta();
         if (meta != null) {
             final List<String> lore = meta.hasLore() 
@@ -109,16 +154,8 @@ public final class InventoryBuilder {
     public ItemStack removeCostLore(ItemStack item) {
         final ItemMeta meta = item.getItemMeta();
         if (meta != null && meta.hasLore()) {
-            final String loreFormat = config.getString(
-                "menu.restore.lore.format", "&eRestoration Cost: &6{cost}");
-            final String cleanFormat = MessageUtils.colorize(loreFormat).replaceAll("§[0-9a-fk-or]", "");
-            final String pattern = cleanFormat.replace("{cost}", "");
-            
             final List<String> lore = meta.getLore().stream()
-                .filter(line -> {
-                    final String cleanLine = line.replaceAll("§[0-9a-fk-or]", "");
-                    return !cleanLine.contains(pattern.trim());
-                })
+                .filter(line -> !settings.isCostLore(line))
                 .collect(Collectors.toList());
             meta.setLore(lore);
             item.setItemMeta(meta);
@@ -126,58 +163,29 @@ public final class InventoryBuilder {
         return item;
     }
 
-    private ItemStack createNavigationItem(String type) {
-        final String basePath = "menu.restore.navigation-buttons." + type;
-        
-        final Material material = Material.getMaterial(
-            config.getString(basePath + ".material", "ARROW").toUpperCase());
-        
-        if (material == null) {
-            logger.warning("Invalid material for navigation button: " + type);
-            return new ItemStack(Material.ARROW);
-        }
-
-        final ItemStack item = new ItemStack(material);
-        final ItemMeta meta = item.getItemMeta();
-        
-        if (meta != null) {
-            meta.setDisplayName(MessageUtils.colorize(
-                config.getString(basePath + ".display-name", "")));
-            
-            final int customModelData = config.getInt(basePath + ".custom-model-data", 0);
-            if (customModelData != 0) {
-                meta.setCustomModelData(customModelData);
-            }
-            
-            item.setItemMeta(meta);
-        }
-        
-        return item;
+    private static Inventory createMenu(MenuHolder.Type type, MenuSession session, int size, String title) {
+        final MenuHolder holder = new MenuHolder(type, session);
+        final Inventory inventory = Bukkit.createInventory(holder, size, title);
+        holder.setInventory(inventory);
+        return inventory;
     }
 
-    private ItemStack createConfirmButton(String type) {
-        final String basePath = "menu.confirm.buttons." + type;
-        
-        final Material material = Material.getMaterial(
-            config.getString(basePath + ".material", "LIME_WOOL").toUpperCase());
-        
-        if (material == null) {
-            logger.warning("Invalid material for confirm button: " + type);
-            return new ItemStack(Material.LIME_WOOL);
-        }
+    private ItemStack createButton(PluginSettings.MenuButton button) {
+        return createButton(button, "");
+    }
 
-        final ItemStack item = new ItemStack(material);
+    /**
+     * Create a button, showing the current value in place of {value} in its name
+     */
+    private ItemStack createButton(PluginSettings.MenuButton button, String value) {
+        final ItemStack item = new ItemStack(button.material());
         final ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
-            meta.setDisplayName(MessageUtils.colorize(
-                config.getString(basePath + ".display-name", "")));
-            
-            final int customModelData = config.getInt(basePath + ".custom-model-data", 0);
-            if (customModelData != 0) {
-                meta.setCustomModelData(customModelData);
+            meta.setDisplayName(button.displayName().replace("{value}", value));
+            if (button.customModelData() != 0) {
+                meta.setCustomModelData(button.customModelData());
             }
-            
             item.setItemMeta(meta);
         }
         
@@ -0,0 +1,35 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import org.bukkit.Material;
+
+/**
+ * Coarse grouping of materials for the menu filter, worked out from the material name alone
+ */
+public enum ItemCategory {
+    WEAPONS,
+    TOOLS,
+    ARMOR,
+    OTHER;
+
+    public static ItemCategory of(Material type) {
+        final String name = type.name();
+        return switch (name) {
+            case "BOW", "CROSSBOW", "TRIDENT", "MACE" -> WEAPONS;
+            case "FISHING_ROD", "SHEARS", "FLINT_AND_STEEL", "CARROT_ON_A_STICK", "WARPED_FUNGUS_ON_A_STICK",
+                 "BRUSH" -> TOOLS;
+            case "ELYTRA", "SHIELD", "TURTLE_HELMET" -> ARMOR;
+            default -> {
+                if (name.endsWith("_SWORD")) {
+                    yield WEAPONS;
+                } else if (name.endsWith("_PICKAXE") || name.endsWith("_AXE") || name.endsWith("_SHOVEL")
+                        || name.endsWith("_HOE")) {
+                    yield TOOLS;
+                } else if (name.endsWith("_HELMET") || name.endsWith("_CHESTPLATE") || name.endsWith("_LEGGINGS")
+                        || name.endsWith("_BOOTS")) {
+                    yield ARMOR;
+                }
+                yield OTHER;
+            }
+        };
+    }
+}
@@ -1,13 +1,11 @@
 package dev.fluffyworld.nxbrokenitems.gui.components;
 
+import dev.fluffyworld.nxbrokenitems.logging.AuditLog;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.io.File;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -17,56 +15,64 @@ import java.util.stream.Collectors;
 
 public final class ItemLogger {
 
-    private final File dataFolder;
-    private final Logger logger;
-    private final FileConfiguration config;
-
-    public ItemLogger(File dataFolder, Logger logger, FileConfiguration config) {
-        this.dataFolder = dataFolder;
-        this.logger = logger;
-        this.config = config;
+    /**
+     * One restored item with what it cost and the price rule behind the cost
+     */
+    public record Recovery(ItemStack item, int cost, String rule) {
     }
 
-    public void logRecovery(String playerName, ItemStack item) {
-        final String logFileName = config.getString("logging.recovery-log-file", "log-recovery.yml");
-        final File logFile = new File(dataFolder, logFileName);
-        final FileConfiguration logConfig = YamlConfiguration.loadConfiguration(logFile);
+    private static final String DEFAULT_DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
-        final String dateTimeFormat = config.getString("logging.date-time-format", "yyyy-MM-dd HH:mm:ss");
-        final String dateOnlyFormat = config.getString("logging.date-only-format", "yyyy-MM-dd");
-        
-        final LocalDateTime now = LocalDateTime.now();
-        final String currentTime = now.format(DateTimeFormatter.ofPattern(dateTimeFormat));
-        final String currentDate = now.format(DateTimeFormatter.ofPattern(dateOnlyFormat));
+    private final AuditLog auditLog;
+    private final DateTimeFormatter dateTimeFormatter;
 
-        final String logEntry = formatLogEntry(playerName, item, "restored", currentTime);
+    public ItemLogger(Logger logger, FileConfiguration config, AuditLog auditLog) {
+        this.auditLog = auditLog;
+        this.dateTimeFormatter = createFormatter(logger,
+            config.getString("logging.date-time-format", DEFAULT_DATE_TIME_FORMAT));
+    }
 
-        final List<String> dailyLogs = new ArrayList<>(logConfig.getStringList(currentDate));
-        dailyLogs.add(logEntry);
-        logConfig.set(currentDate, dailyLogs);
+    /**
+     * Log a restoration with what it cost and the price rule behind the cost
+     */
+    public void logRecovery(String playerName, ItemStack item, int cost, String rule) {
+        appendLog(playerName, item, AuditLog.ACTION_RESTORED, " for " + cost + " (" + rule + ")");
+    }
 
-        saveLog(logFile, logConfig);
+    /**
+     * Log the items of one bulk restoration as a single batch
+     */
+    public void logRecoveries(String playerName, List<Recovery> recoveries) {
+        final String currentTime = LocalDateTime.now().format(dateTimeFormatter);
+        final List<String> entries = new ArrayList<>(recoveries.size());
+        for (Recovery recovery : recoveries) {
+            entries.add(sanitize(formatLogEntry(playerName, recovery.item(), AuditLog.ACTION_RESTORED, currentTime)
+                + " for " + recovery.cost() + " (" + recovery.rule() + ")"));
+        }
+        auditLog.append(AuditLog.ACTION_RESTORED, playerName, entries);
     }
 
     public void logDeletion(String playerName, ItemStack item) {
-        final String logFileName = config.getString("logging.deletion-log-file", "log-item-delete.yml");
-        final File logFile = new File(dataFolder, logFileName);
-        final FileConfiguration logConfig = YamlConfiguration.loadConfiguration(logFile);
-
-        final String dateTimeFormat = config.getString("logging.date-time-format", "yyyy-MM-dd HH:mm:ss");
-        final String dateOnlyFormat = config.getString("logging.date-only-format", "yyyy-MM-dd");
-        
-        final LocalDateTime now = LocalDateTime.now();
-        final String currentTime = now.format(DateTimeFormatter.ofPattern(dateTimeFormat));
-        final String currentDate = now.format(DateTimeFormatter.ofPattern(dateOnlyFormat));
+        appendLog(playerName, item, AuditLog.ACTION_DELETED, "");
+    }
 
-        final String logEntry = formatLogEntry(playerName, item, "deleted", currentTime);
+    private void appendLog(String playerName, ItemStack item, String action, String details) {
+        final String currentTime = LocalDateTime.now().format(dateTimeFormatter);
+        final String logEntry = formatLogEntry(playerName, item, action, currentTime) + details;
+        auditLog.append(action, playerName, sanitize(logEntry));
+    }
 
-        final List<String> dailyLogs = new ArrayList<>(logConfig.getStringList(currentDate));
-        dailyLogs.add(logEntry);
-        logConfig.set(currentDate, dailyLogs);
+    private static String sanitize(String logEntry) {
+        return logEntry.replace('\n', ' ').replace('\r', ' ');
+    }
 
-        saveLog(logFile, logConfig);
+    private static DateTimeFormatter createFormatter(Logger logger, String pattern) {
+        try {
+            return DateTimeFormatter.ofPattern(pattern);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid logging.date-time-format '" + pattern + "', using the default", e);
+            return DateTimeFormatter.ofPattern(DEFAULT_DATE_TIME_FORMAT);
+        }
     }
 
     private String formatLogEntry(String playerName, ItemStack item, String action, String time) {
@@ -96,12 +102,4 @@ public final class ItemLogger {
         return String.format("%s %s %dx %s%s%s at %s",
             playerName, action, item.getAmount(), displayName, lore, enchantmentsStr, time);
     }
-
-    private void saveLog(File logFile, FileConfiguration logConfig) {
-        try {
-            logConfig.save(logFile);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to save log file: " + logFile.getName(), e);
-        }
-    }
 }
@@ -0,0 +1,30 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+
+/**
+ * Which entries the restore menu lists, decided from the stored item summary alone
+ */
+public enum MenuFilter {
+    ALL,
+    WEAPONS,
+    TOOLS,
+    ARMOR,
+    OTHER,
+    ADVANCED_ENCHANTMENTS;
+
+    public boolean test(BrokenItemEntry entry) {
+        return switch (this) {
+            case ALL -> true;
+            case WEAPONS -> ItemCategory.of(entry.getType()) == ItemCategory.WEAPONS;
+            case TOOLS -> ItemCategory.of(entry.getType()) == ItemCategory.TOOLS;
+            case ARMOR -> ItemCategory.of(entry.getType()) == ItemCategory.ARMOR;
+            case OTHER -> ItemCategory.of(entry.getType()) == ItemCategory.OTHER;
+            case ADVANCED_ENCHANTMENTS -> entry.isAdvancedEnchantment();
+        };
+    }
+
+    public MenuFilter next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+}
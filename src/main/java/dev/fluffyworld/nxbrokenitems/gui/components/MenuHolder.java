@@ -0,0 +1,42 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import dev.fluffyworld.nxbrokenitems.gui.MenuSession;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * Marks an inventory as one of the plugin's menus and links it to the session that opened it
+ */
+public final class MenuHolder implements InventoryHolder {
+
+    public enum Type {
+        LIST,
+        CONFIRM
+    }
+
+    private final Type type;
+    private final MenuSession session;
+    private Inventory inventory;
+
+    public MenuHolder(Type type, MenuSession session) {
+        this.type = type;
+        this.session = session;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public MenuSession getSession() {
+        return session;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
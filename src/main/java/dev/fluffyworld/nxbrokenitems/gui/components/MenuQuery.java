@@ -0,0 +1,59 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sort, filter and search text picked in the restore menu
+ *
+ * @param search Lower case text the item name or material must contain, or null for none
+ */
+public record MenuQuery(MenuSort sort, MenuFilter filter, String search) {
+
+    public static final MenuQuery DEFAULT = new MenuQuery(MenuSort.OLDEST, MenuFilter.ALL, null);
+
+    public MenuQuery withSort(MenuSort sort) {
+        return new MenuQuery(sort, filter, search);
+    }
+
+    public MenuQuery withFilter(MenuFilter filter) {
+        return new MenuQuery(sort, filter, search);
+    }
+
+    /**
+     * @param search The text to search for, blank to clear the search
+     */
+    public MenuQuery withSearch(String search) {
+        final String trimmed = search != null ? search.trim().toLowerCase(Locale.ROOT) : "";
+        return new MenuQuery(sort, filter, trimmed.isEmpty() ? null : trimmed);
+    }
+
+    /**
+     * Check whether the query lists every entry in storage order
+     */
+    public boolean isDefault() {
+        return sort == MenuSort.OLDEST && filter == MenuFilter.ALL && search == null;
+    }
+
+    /**
+     * Filter and sort entries on their stored summaries, without deserialising their items
+     */
+    public List<BrokenItemEntry> apply(List<BrokenItemEntry> entries, ItemCostCalculator costCalculator) {
+        final List<BrokenItemEntry> matched = new ArrayList<>(entries.size());
+        for (BrokenItemEntry entry : entries) {
+            if (filter.test(entry) && (search == null || entry.getSearchText().contains(search))) {
+                matched.add(entry);
+            }
+        }
+
+        final Comparator<BrokenItemEntry> comparator = sort.comparator(costCalculator);
+        if (comparator != null) {
+            matched.sort(comparator);
+        }
+        return matched;
+    }
+}
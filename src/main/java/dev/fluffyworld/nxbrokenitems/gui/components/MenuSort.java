@@ -0,0 +1,35 @@
+package dev.fluffyworld.nxbrokenitems.gui.components;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+
+import java.util.Comparator;
+
+/**
+ * Order of the restore menu. Break time, material and the inputs of the cost are stored with every entry,
+ * so sorting never deserialises an item.
+ */
+public enum MenuSort {
+    OLDEST,
+    NEWEST,
+    COST_HIGHEST,
+    COST_LOWEST,
+    MATERIAL;
+
+    /**
+     * @return The comparator, or null to keep storage order
+     */
+    public Comparator<BrokenItemEntry> comparator(ItemCostCalculator costCalculator) {
+        return switch (this) {
+            case OLDEST -> null;
+            case NEWEST -> Comparator.comparingLong(BrokenItemEntry::getTimestamp).reversed();
+            case COST_HIGHEST -> Comparator.<BrokenItemEntry>comparingInt(entry -> costCalculator.quote(entry).cost())
+                .reversed();
+            case COST_LOWEST -> Comparator.comparingInt(entry -> costCalculator.quote(entry).cost());
+            case MATERIAL -> Comparator.comparing(entry -> entry.getType().name());
+        };
+    }
+
+    public MenuSort next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+}
@@ -1,11 +1,13 @@
 package dev.fluffyworld.nxbrokenitems.listeners;
 
 import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
-import dev.fluffyworld.nxbrokenitems.listeners.components.*;
-import dev.fluffyworld.nxbrokenitems.utils.MessageUtils;
-import org.bukkit.Bukkit;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.listeners.components.BreakPipeline;
+import dev.fluffyworld.nxbrokenitems.listeners.components.ItemValidator;
+import dev.fluffyworld.nxbrokenitems.listeners.components.PlayerStateHolder;
 import org.bukkit.Material;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -16,21 +18,19 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.Damageable;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.*;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
 
-public class ItemBreakListener implements Listener {
+public class ItemBreakListener implements Listener, PlayerStateHolder {
 
     private final NxBrokenItems plugin;
-    private final Map<UUID, BrokenItemInfo> lastBrokenItems = new ConcurrentHashMap<>();
-    private final Map<UUID, Set<String>> playerBrokenItemHashes = new ConcurrentHashMap<>();
+    private final BreakPipeline breakPipeline;
     private final Map<UUID, ItemStack> aboutToBreakItems = new ConcurrentHashMap<>();
-    private final ItemSaver itemSaver;
 
-    public ItemBreakListener(NxBrokenItems plugin) {
+    public ItemBreakListener(NxBrokenItems plugin, BreakPipeline breakPipeline) {
         this.plugin = plugin;
-        this.itemSaver = new ItemSaver(plugin);
+        this.breakPipeline = breakPipeline;
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -72,93 +72,26 @@ public class ItemBreakListener implements Listener {
             return;
         }
 
-        final FileConfiguration config = plugin.getConfig();
-
-        if (!ItemValidator.isWhitelisted(brokenItem, config)) {
+        final PluginSettings settings = plugin.getSettings();
+        if (!ItemValidator.isWhitelisted(brokenItem, settings)) {
             return;
         }
 
         final long currentTime = System.currentTimeMillis();
-        
-        if (ItemValidator.hasAdvancedEnchantment(brokenItem) && isDuplicateBreakEvent(playerUUID, brokenItem, currentTime)) {
-            plugin.getLogger().log(Level.WARNING, 
-                "Prevented duplicate item break event for player: " + player.getName());
-            return;
-        }
-
-        final ItemStack itemToProcess = brokenItem.clone();
-        
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            verifyAndSaveItem(player, playerUUID, itemToProcess, currentTime);
-        }, 2L);
-    }
+        final ItemProfile profile = settings.analyze(brokenItem);
+        final ItemFingerprint fingerprint = ItemFingerprint.of(brokenItem);
 
-    private boolean isDuplicateBreakEvent(UUID playerUUID, ItemStack brokenItem, long currentTime) {
-        final BrokenItemInfo lastBrokenItemInfo = lastBrokenItems.get(playerUUID);
-        
-        if (lastBrokenItemInfo == null) {
-            return false;
-        }
-
-        return lastBrokenItemInfo.isSameItem(brokenItem) && 
-               (currentTime - lastBrokenItemInfo.getTimestamp() <= 5000);
+        // Duplicate break events are recognised by the pipeline, which knows what the player has stored
+        breakPipeline.submit(player, brokenItem.clone(), profile, fingerprint, currentTime);
     }
 
-    private void verifyAndSaveItem(Player player, UUID playerUUID, ItemStack brokenItem, long currentTime) {
-        final boolean hasAdvancedEnchantment = ItemValidator.hasAdvancedEnchantment(brokenItem);
-
-        if (hasAdvancedEnchantment && playerHasItem(player, brokenItem)) {
-            plugin.getLogger().log(Level.WARNING, 
-                "Item duplication attempt prevented for player: " + player.getName() + 
-                " - AdvancedEnchantment item still in inventory");
-            return;
-        }
-
-        final String itemHash = DuplicateChecker.generateItemHash(brokenItem);
-        final Set<String> playerHashes = playerBrokenItemHashes.computeIfAbsent(
-            playerUUID, k -> ConcurrentHashMap.newKeySet());
-
-        if (playerHashes.contains(itemHash)) {
-            plugin.getLogger().log(Level.WARNING, 
-                "Duplicate item detected for player: " + player.getName());
-            return;
-        }
-
-        final FileConfiguration config = plugin.getConfig();
-        final boolean repairOnRecovery = config.getBoolean("repair-on-recovery");
-
-        final ItemStack itemToSave = brokenItem.clone();
-        
-        if (repairOnRecovery) {
-            itemToSave.setDurability((short) 0);
-        }
-
-        lastBrokenItems.put(playerUUID, new BrokenItemInfo(itemToSave, currentTime));
-        playerHashes.add(itemHash);
-
-        final boolean isDuplicate = itemSaver.saveItemToDataFile(playerUUID, itemToSave);
-        
-        if (isDuplicate) {
-            plugin.getLogger().log(Level.WARNING, 
-                "Duplicate item saved within 30 seconds for player: " + player.getName() + " - Kept old item");
-        }
-
-        final String message = config.getString("messages.item-broken");
-        if (message != null && !message.isEmpty()) {
-            player.sendMessage(MessageUtils.colorize(message));
-        }
-
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            playerHashes.remove(itemHash);
-            if (playerHashes.isEmpty()) {
-                playerBrokenItemHashes.remove(playerUUID);
-            }
-        }, 200L);
+    @Override
+    public void clearPlayerState(UUID playerUUID) {
+        aboutToBreakItems.remove(playerUUID);
     }
 
-    private boolean playerHasItem(Player player, ItemStack brokenItem) {
-        return Arrays.stream(player.getInventory().getContents())
-            .filter(Objects::nonNull)
-            .anyMatch(item -> DuplicateChecker.isSameItemIgnoreDurability(item, brokenItem));
+    @Override
+    public int getPlayerStateCount() {
+        return aboutToBreakItems.size();
     }
 }
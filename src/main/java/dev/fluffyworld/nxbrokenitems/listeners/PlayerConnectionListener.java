@@ -0,0 +1,60 @@
+package dev.fluffyworld.nxbrokenitems.listeners;
+
+import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.listeners.components.PlayerStateHolder;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Preloads a player's data on join and drops every piece of per-player state on quit
+ */
+public class PlayerConnectionListener implements Listener {
+
+    private final NxBrokenItems plugin;
+    private final List<PlayerStateHolder> stateHolders = new CopyOnWriteArrayList<>();
+
+    public PlayerConnectionListener(NxBrokenItems plugin) {
+        this.plugin = plugin;
+    }
+
+    public void registerStateHolder(PlayerStateHolder stateHolder) {
+        stateHolders.add(stateHolder);
+    }
+
+    public void unregisterStateHolder(PlayerStateHolder stateHolder) {
+        stateHolders.remove(stateHolder);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getDataCache().preload(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        final UUID playerUUID = event.getPlayer().getUniqueId();
+        stateHolders.forEach(stateHolder -> stateHolder.clearPlayerState(playerUUID));
+        plugin.getDataCache().evict(playerUUID);
+    }
+
+    /**
+     * Get the number of live per-player entries, by component
+     */
+    public Map<String, Integer> getLiveStateCounts() {
+        final Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("PlayerDataCache", plugin.getDataCache().size());
+        for (PlayerStateHolder stateHolder : stateHolders) {
+            counts.merge(stateHolder.getPlayerStateName(), stateHolder.getPlayerStateCount(), Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,328 @@
+package dev.fluffyworld.nxbrokenitems.listeners.components;
+
+import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.PlayerData;
+import dev.fluffyworld.nxbrokenitems.scheduler.ScheduledTask;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Queue between the break listener and storage.
+ * Breaks wait a couple of ticks so the broken item has left the inventory, then everything due is drained
+ * once per tick, grouped by player: one inventory scan, one data lookup and one retention pass per player.
+ * Breaks of a player who quits before their turn are processed on quit instead of being dropped.
+ * The queue has a capacity and each tick saves a limited number of breaks, globally and per player;
+ * the configured {@link OverflowPolicy} decides what happens to breaks over those limits.
+ * The queue is drained on the global tick, each player's batch is saved on the thread that owns the player.
+ */
+public final class BreakPipeline implements PlayerStateHolder {
+
+    private static final long PROCESS_DELAY_TICKS = 2L;
+
+    private record PendingBreak(Player player, ItemStack item, ItemProfile profile, ItemFingerprint fingerprint,
+                                long time, long dueTick) {
+
+        private QueuedKey key() {
+            return new QueuedKey(player.getUniqueId(), fingerprint);
+        }
+    }
+
+    private record QueuedKey(UUID playerUUID, ItemFingerprint fingerprint) {
+    }
+
+    private final NxBrokenItems plugin;
+    private final DedupeWindow dedupeWindow = new DedupeWindow();
+    private final ItemSaver itemSaver;
+    private final Deque<PendingBreak> queue = new ConcurrentLinkedDeque<>();
+    private final Map<QueuedKey, Integer> queuedKeys = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicInteger droppedThisTick = new AtomicInteger();
+    private volatile long currentTick;
+    private ScheduledTask task;
+
+    public BreakPipeline(NxBrokenItems plugin) {
+        this.plugin = plugin;
+        this.itemSaver = new ItemSaver(plugin, dedupeWindow);
+    }
+
+    public void start() {
+        task = plugin.getTaskScheduler().runTimer(this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop draining and process everything still queued
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        // The schedulers no longer run tasks, save what is left on this thread
+        drain(Long.MAX_VALUE, false);
+        logDrops();
+    }
+
+    /**
+     * Queue a broken item, the item must be a copy the caller no longer changes
+     */
+    public void submit(Player player, ItemStack item, ItemProfile profile, ItemFingerprint fingerprint, long time) {
+        final PluginSettings settings = plugin.getSettings();
+        final PendingBreak pending = new PendingBreak(player, item, profile, fingerprint, time,
+            currentTick + PROCESS_DELAY_TICKS);
+
+        final int queued = queuedCount.incrementAndGet();
+        if (queued > settings.getBreakQueueCapacity()) {
+            switch (settings.getBreakOverflow()) {
+                // The queue runs over capacity until the drain catches up
+                case DEFER -> deferredCount.incrementAndGet();
+                case COALESCE -> {
+                    queuedCount.decrementAndGet();
+                    if (queuedKeys.containsKey(pending.key())) {
+                        coalescedCount.incrementAndGet();
+                    } else {
+                        drop(pending);
+                    }
+                    return;
+                }
+                case DROP -> {
+                    queuedCount.decrementAndGet();
+                    drop(pending);
+                    return;
+                }
+            }
+        }
+
+        addKey(pending.key());
+        queue.add(pending);
+        peakQueued.accumulateAndGet(queued, Math::max);
+    }
+
+    /**
+     * Get the number of breaks waiting to be processed
+     */
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * Get the queue depth and what happened to breaks since the plugin was enabled
+     */
+    public Map<String, Long> getStats() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("Break queue", (long) queuedCount.get());
+        stats.put("Break queue peak", (long) peakQueued.get());
+        stats.put("Breaks saved", processedCount.get());
+        stats.put("Breaks deferred", deferredCount.get());
+        stats.put("Breaks coalesced", coalescedCount.get());
+        stats.put("Breaks dropped", droppedCount.get());
+        return stats;
+    }
+
+    @Override
+    public void clearPlayerState(UUID playerUUID) {
+        final List<PendingBreak> pending = new ArrayList<>();
+        for (PendingBreak pendingBreak : queue) {
+            // The drain may take the same break concurrently, only one of them removes it
+            if (pendingBreak.player().getUniqueId().equals(playerUUID) && queue.removeFirstOccurrence(pendingBreak)) {
+                queuedCount.decrementAndGet();
+                removeKey(pendingBreak.key());
+                pending.add(pendingBreak);
+            }
+        }
+        if (!pending.isEmpty()) {
+            process(playerUUID, pending);
+        }
+        dedupeWindow.clear(playerUUID);
+    }
+
+    @Override
+    public int getPlayerStateCount() {
+        return queuedCount.get() + dedupeWindow.size();
+    }
+
+    private void tick() {
+        drain(++currentTick, true);
+        logDrops();
+    }
+
+    /**
+     * Process every break due by the tick, within the per tick limits and on the players' threads
+     * unless the limits are lifted
+     */
+    private void drain(long tick, boolean limited) {
+        final PluginSettings settings = plugin.getSettings();
+        final int perTick = limited ? settings.getBreaksPerTick() : Integer.MAX_VALUE;
+        final int perPlayer = limited ? settings.getBreaksPerPlayerPerTick() : Integer.MAX_VALUE;
+        final OverflowPolicy overflow = settings.getBreakOverflow();
+
+        final Map<UUID, List<PendingBreak>> byPlayer = new LinkedHashMap<>();
+        final List<PendingBreak> deferred = new ArrayList<>();
+        final Set<QueuedKey> drained = new HashSet<>();
+        int taken = 0;
+        PendingBreak pending;
+        while ((pending = queue.peek()) != null && pending.dueTick() <= tick) {
+            if (!queue.removeFirstOccurrence(pending)) {
+                // Taken by a quitting player meanwhile
+                continue;
+            }
+            queuedCount.decrementAndGet();
+            final List<PendingBreak> batch = byPlayer.computeIfAbsent(pending.player().getUniqueId(),
+                key -> new ArrayList<>());
+            final boolean duplicate = !drained.add(pending.key());
+            if (taken < perTick && batch.size() < perPlayer) {
+                removeKey(pending.key());
+                batch.add(pending);
+                taken++;
+            } else if (overflow == OverflowPolicy.DROP) {
+                removeKey(pending.key());
+                drop(pending);
+            } else if (overflow == OverflowPolicy.COALESCE && duplicate) {
+                // Over the limits, the same item of the same player is already saved or waiting
+                removeKey(pending.key());
+                coalescedCount.incrementAndGet();
+            } else {
+                queuedCount.incrementAndGet();
+                deferred.add(pending);
+            }
+            // Drop and coalesce look at every due break, deferring ones simply wait
+            if (taken >= perTick && overflow == OverflowPolicy.DEFER) {
+                break;
+            }
+        }
+
+        // Deferred breaks go back to the front so they keep their turn
+        for (int i = deferred.size() - 1; i >= 0; i--) {
+            queue.addFirst(deferred.get(i));
+        }
+        deferredCount.addAndGet(deferred.size());
+
+        byPlayer.forEach((playerUUID, breaks) -> {
+            if (breaks.isEmpty()) {
+                return;
+            }
+            final Runnable task = () -> processSafely(playerUUID, breaks);
+            if (limited) {
+                // Breaks of a player who left are still saved when their entity retires
+                plugin.getTaskScheduler().runForEntity(breaks.get(0).player(), task, task);
+            } else {
+                task.run();
+            }
+        });
+    }
+
+    private void addKey(QueuedKey key) {
+        queuedKeys.merge(key, 1, Integer::sum);
+    }
+
+    private void removeKey(QueuedKey key) {
+        queuedKeys.computeIfPresent(key, (queuedKey, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void processSafely(UUID playerUUID, List<PendingBreak> breaks) {
+        try {
+            process(playerUUID, breaks);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save broken items of " + playerUUID, e);
+        }
+    }
+
+    private void drop(PendingBreak pending) {
+        droppedCount.incrementAndGet();
+        droppedThisTick.incrementAndGet();
+        plugin.getLogger().log(Level.FINE, "Dropped broken " + pending.item().getType() + " of "
+            + pending.player().getName());
+    }
+
+    /**
+     * Log dropped breaks once per tick rather than once per break
+     */
+    private void logDrops() {
+        final int dropped = droppedThisTick.getAndSet(0);
+        if (dropped > 0) {
+            plugin.getLogger().warning("Dropped " + dropped
+                + " broken items over the break-queue limits, " + droppedCount.get() + " dropped in total");
+        }
+    }
+
+    private void process(UUID playerUUID, List<PendingBreak> breaks) {
+        final PluginSettings settings = plugin.getSettings();
+        final Player player = breaks.get(0).player();
+        final Set<ItemFingerprint> inventory = fingerprintInventory(player, breaks);
+        final PlayerData playerData = plugin.getDataCache().get(playerUUID);
+        int saved = 0;
+
+        for (PendingBreak pending : breaks) {
+            if (pending.profile().advancedEnchantment() && inventory.contains(pending.fingerprint())) {
+                plugin.getLogger().log(Level.WARNING,
+                    "Item duplication attempt prevented for player: " + player.getName() +
+                    " - AdvancedEnchantment item still in inventory");
+                continue;
+            }
+
+            // Only a copy that is still stored makes a break a duplicate, a restored item that breaks again
+            // right away must be saved again
+            if (dedupeWindow.contains(playerUUID, pending.fingerprint(), DedupeWindow.Scope.BREAK, pending.time())
+                    && playerData.findFirst(pending.fingerprint()) != null) {
+                plugin.getLogger().log(Level.WARNING,
+                    "Duplicate item detected for player: " + player.getName());
+                continue;
+            }
+            dedupeWindow.record(playerUUID, pending.fingerprint(), DedupeWindow.Scope.BREAK,
+                settings.getBreakDedupeMillis(), pending.time());
+
+            final ItemStack itemToSave = pending.item();
+            if (settings.isRepairOnRecovery()) {
+                itemToSave.setDurability((short) 0);
+            }
+
+            if (itemSaver.saveItem(playerData, itemToSave, pending.profile(), pending.fingerprint(), pending.time())) {
+                plugin.getLogger().log(Level.WARNING,
+                    "Duplicate item saved within " + settings.getAdvancedEnchantmentDedupeMillis() +
+                    " ms for player: " + player.getName() + " - Kept old item");
+            }
+            saved++;
+            processedCount.incrementAndGet();
+        }
+
+        if (saved == 0) {
+            return;
+        }
+        plugin.getRetentionPolicy().enforce(playerData);
+
+        final String message = settings.getMessage("item-broken");
+        if (!message.isEmpty() && player.isOnline()) {
+            player.sendMessage(message);
+        }
+    }
+
+    /**
+     * Fingerprint the inventory items that could be an AdvancedEnchantments item from this batch, in one scan
+     */
+    private static Set<ItemFingerprint> fingerprintInventory(Player player, List<PendingBreak> breaks) {
+        final Set<Material> types = EnumSet.noneOf(Material.class);
+        for (PendingBreak pending : breaks) {
+            if (pending.profile().advancedEnchantment()) {
+                types.add(pending.item().getType());
+            }
+        }
+        return types.isEmpty()
+            ? Collections.emptySet()
+            : DuplicateChecker.fingerprintsOf(player.getInventory().getContents(), types);
+    }
+}
@@ -0,0 +1,130 @@
+package dev.fluffyworld.nxbrokenitems.listeners.components;
+
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Remembers which item fingerprints each player broke recently, for a configurable window per scope.
+ * Expired fingerprints are dropped by a hashed timing wheel that is advanced on every call,
+ * so no scheduler task is needed per break.
+ */
+public final class DedupeWindow {
+
+    private static final long TICK_MILLIS = 100L;
+    private static final int WHEEL_SIZE = 1024;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    public enum Scope {
+        /** Any whitelisted item saved by the break listener */
+        BREAK,
+        /** AdvancedEnchantments items stored by {@link ItemSaver} */
+        ADVANCED_ENCHANTMENT
+    }
+
+    private record Key(UUID playerUUID, ItemFingerprint fingerprint, Scope scope) {
+    }
+
+    private record Slot(Key key, long expiresAt) {
+    }
+
+    private final Map<Key, Long> deadlines = new HashMap<>();
+    private final ArrayDeque<Slot>[] wheel;
+    private long currentTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public DedupeWindow() {
+        this.wheel = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Record a fingerprint unless it is already inside its window
+     *
+     * @return true if it was recorded, false if it was seen within the window
+     */
+    public synchronized boolean tryRecord(UUID playerUUID, ItemFingerprint fingerprint, Scope scope,
+                                          long windowMillis, long now) {
+        if (contains(playerUUID, fingerprint, scope, now)) {
+            return false;
+        }
+        record(playerUUID, fingerprint, scope, windowMillis, now);
+        return true;
+    }
+
+    /**
+     * Record a fingerprint, restarting its window if it is already inside one
+     */
+    public synchronized void record(UUID playerUUID, ItemFingerprint fingerprint, Scope scope,
+                                    long windowMillis, long now) {
+        advance(now);
+        final Key key = new Key(Objects.requireNonNull(playerUUID, "Player UUID cannot be null"),
+            Objects.requireNonNull(fingerprint, "Fingerprint cannot be null"), scope);
+        if (windowMillis <= 0) {
+            deadlines.remove(key);
+            return;
+        }
+
+        final long expiresAt = now + windowMillis;
+        deadlines.put(key, expiresAt);
+        final long tick = Math.max(Math.floorDiv(expiresAt + TICK_MILLIS - 1, TICK_MILLIS), currentTick + 1);
+        wheel[(int) (tick & WHEEL_MASK)].add(new Slot(key, expiresAt));
+    }
+
+    public synchronized boolean contains(UUID playerUUID, ItemFingerprint fingerprint, Scope scope, long now) {
+        advance(now);
+        final Long deadline = deadlines.get(new Key(playerUUID, fingerprint, scope));
+        return deadline != null && deadline > now;
+    }
+
+    /**
+     * Forget every fingerprint of a player, their slots in the wheel are dropped when due
+     */
+    public synchronized void clear(UUID playerUUID) {
+        deadlines.keySet().removeIf(key -> key.playerUUID().equals(playerUUID));
+    }
+
+    /**
+     * Get the number of fingerprints currently inside their window
+     */
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    private void advance(long now) {
+        final long nowTick = Math.floorDiv(now, TICK_MILLIS);
+        if (currentTick < 0) {
+            currentTick = nowTick;
+            return;
+        }
+        if (nowTick <= currentTick) {
+            return;
+        }
+
+        // After a long pause one full turn of the wheel visits every bucket
+        final long steps = Math.min(nowTick - currentTick, WHEEL_SIZE);
+        for (long step = 1; step <= steps; step++) {
+            expire(wheel[(int) ((currentTick + step) & WHEEL_MASK)], now);
+        }
+        currentTick = nowTick;
+    }
+
+    private void expire(ArrayDeque<Slot> bucket, long now) {
+        final Iterator<Slot> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            final Slot slot = iterator.next();
+            // Slots of windows longer than one turn stay for a later round
+            if (slot.expiresAt() <= now) {
+                iterator.remove();
+                deadlines.remove(slot.key(), slot.expiresAt());
+            }
+        }
+    }
+}
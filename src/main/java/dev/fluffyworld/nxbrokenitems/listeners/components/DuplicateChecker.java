@@ -1,76 +1,25 @@
 package dev.fluffyworld.nxbrokenitems.listeners.components;
 
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.Objects;
+import java.util.HashSet;
+import java.util.Set;
 
 public final class DuplicateChecker {
 
-    public static boolean isSameItemType(ItemStack item1, ItemStack item2) {
-        if (item1 == null || item2 == null) {
-            return false;
-        }
-        
-        if (item1.getType() != item2.getType()) {
-            return false;
-        }
-        
-        final ItemMeta meta1 = item1.getItemMeta();
-        final ItemMeta meta2 = item2.getItemMeta();
-        
-        if (meta1 == null && meta2 == null) {
-            return true;
-        }
-        
-        if (meta1 == null || meta2 == null) {
-            return false;
-        }
-        
-        return Objects.equals(meta1.getDisplayName(), meta2.getDisplayName()) &&
-               Objects.equals(meta1.getLore(), meta2.getLore()) &&
-               Objects.equals(meta1.getEnchants(), meta2.getEnchants());
-    }
-
-    public static boolean isSameItemIgnoreDurability(ItemStack item1, ItemStack item2) {
-        if (item1 == null || item2 == null) {
-            return false;
-        }
-
-        if (item1.getType() != item2.getType()) {
-            return false;
-        }
-
-        final ItemMeta meta1 = item1.getItemMeta();
-        final ItemMeta meta2 = item2.getItemMeta();
-
-        if (meta1 == null && meta2 == null) {
-            return true;
-        }
-
-        if (meta1 == null || meta2 == null) {
-            return false;
-        }
-
-        return Objects.equals(meta1.getDisplayName(), meta2.getDisplayName()) &&
-               Objects.equals(meta1.getLore(), meta2.getLore()) &&
-               Objects.equals(meta1.getEnchants(), meta2.getEnchants());
-    }
-
-    public static String generateItemHash(ItemStack item) {
-        final StringBuilder hash = new StringBuilder();
-        hash.append(item.getType().name());
-        
-        final ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            hash.append(":").append(meta.getDisplayName());
-            if (meta.hasLore()) {
-                hash.append(":").append(String.join(",", meta.getLore()));
+    /**
+     * Take the {@link ItemFingerprint#of(ItemStack)} of every item of the given types.
+     * Items of other types are never hashed.
+     */
+    public static Set<ItemFingerprint> fingerprintsOf(ItemStack[] contents, Set<Material> types) {
+        final Set<ItemFingerprint> fingerprints = new HashSet<>();
+        for (ItemStack item : contents) {
+            if (item != null && types.contains(item.getType())) {
+                fingerprints.add(ItemFingerprint.of(item));
             }
-            hash.append(":").append(meta.getEnchants().toString());
         }
-        
-        hash.append(":").append(System.nanoTime());
-        return Integer.toHexString(hash.toString().hashCode());
+        return fingerprints;
     }
 }
@@ -1,82 +1,61 @@
 package dev.fluffyworld.nxbrokenitems.listeners.components;
 
 import dev.fluffyworld.nxbrokenitems.NxBrokenItems;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import dev.fluffyworld.nxbrokenitems.config.PluginSettings;
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.PlayerData;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.Set;
+import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
 
 public final class ItemSaver {
 
     private final NxBrokenItems plugin;
+    private final DedupeWindow dedupeWindow;
 
-    public ItemSaver(NxBrokenItems plugin) {
+    public ItemSaver(NxBrokenItems plugin, DedupeWindow dedupeWindow) {
         this.plugin = plugin;
+        this.dedupeWindow = dedupeWindow;
     }
 
-    public boolean saveItemToDataFile(UUID playerUUID, ItemStack itemToSave) {
-        FileConfiguration dataConfig = plugin.getDataConfig(playerUUID);
-        if (dataConfig == null) {
-            dataConfig = plugin.createDataFile(playerUUID);
-        }
-
-        final ConfigurationSection restoreSection = dataConfig.isConfigurationSection("restoreItem") 
-            ? dataConfig.getConfigurationSection("restoreItem")
-            : dataConfig.createSection("restoreItem");
-
-        final Set<String> keys = restoreSection.getKeys(false);
-        final FileConfiguration finalDataConfig = dataConfig;
-        final long currentTime = System.currentTimeMillis();
-        
-        boolean foundDuplicate = false;
-        String duplicateKey = null;
-
-        final boolean hasAdvancedEnchantment = ItemValidator.hasAdvancedEnchantment(itemToSave);
-
-        if (hasAdvancedEnchantment) {
-            for (String key : keys) {
-                final ItemStack storedItem = finalDataConfig.getItemStack("restoreItem." + key + ".item");
-                if (storedItem != null && DuplicateChecker.isSameItemType(storedItem, itemToSave)) {
-                    final long storedTime = finalDataConfig.getLong("restoreItem." + key + ".timestamp", 0);
-                    
-                    if (storedTime > 0 && (currentTime - storedTime) <= 30000) {
-                        foundDuplicate = true;
-                        duplicateKey = key;
-                        break;
-                    } else if (storedTime == 0) {
-                        finalDataConfig.set("restoreItem." + key, null);
-                    }
-                }
-            }
-        } else {
-            for (String key : keys) {
-                final ItemStack storedItem = finalDataConfig.getItemStack("restoreItem." + key + ".item");
-                if (storedItem != null && DuplicateChecker.isSameItemType(storedItem, itemToSave)) {
-                    finalDataConfig.set("restoreItem." + key, null);
-                }
+    /**
+     * Store a broken item, the caller enforces retention once it has saved its batch
+     *
+     * @return true if an AdvancedEnchantments copy stored moments ago was kept instead
+     */
+    public boolean saveItem(PlayerData playerData, ItemStack itemToSave, ItemProfile profile,
+                            ItemFingerprint fingerprint, long currentTime) {
+        final UUID playerUUID = playerData.getPlayerUUID();
+
+        final PluginSettings settings = plugin.getSettings();
+        final List<BrokenItemEntry> stored = playerData.findByFingerprint(fingerprint);
+
+        if (profile.advancedEnchantment()) {
+            // Only a copy that is still stored wins, the player may have restored it and broken it again
+            if (!stored.isEmpty() && dedupeWindow.contains(playerUUID, fingerprint,
+                    DedupeWindow.Scope.ADVANCED_ENCHANTMENT, currentTime)) {
+                plugin.getLogger().log(Level.INFO,
+                    "Duplicate AdvancedEnchantment item detected for player " + playerUUID + " within "
+                        + settings.getAdvancedEnchantmentDedupeMillis() + " ms - Keeping old item, ignoring new one");
+                return true;
             }
+            dedupeWindow.record(playerUUID, fingerprint, DedupeWindow.Scope.ADVANCED_ENCHANTMENT,
+                settings.getAdvancedEnchantmentDedupeMillis(), currentTime);
         }
 
-        if (foundDuplicate && duplicateKey != null) {
-            plugin.getLogger().log(Level.INFO, 
-                "Duplicate AdvancedEnchantment item detected for player " + playerUUID + " within 30 seconds - Keeping old item, ignoring new one");
-            plugin.saveDataFile(playerUUID, finalDataConfig);
-            return true;
+        for (BrokenItemEntry entry : stored) {
+            if (!profile.advancedEnchantment() || entry.getTimestamp() == 0) {
+                playerData.removeEntry(entry.getId());
+            }
         }
 
-        int itemIndex = 0;
-        while (keys.contains(String.valueOf(itemIndex))) {
-            itemIndex++;
-        }
+        playerData.putEntry(new BrokenItemEntry(playerData.allocateId(), itemToSave, profile, currentTime,
+                profile.blacklisted(), fingerprint));
 
-        finalDataConfig.set("restoreItem." + itemIndex + ".item", itemToSave);
-        finalDataConfig.set("restoreItem." + itemIndex + ".timestamp", currentTime);
-        finalDataConfig.set("restoreItem." + itemIndex + ".blacklisted", ItemValidator.hasBlacklistedCustomData(itemToSave, plugin.getConfig()));
-        plugin.saveDataFile(playerUUID, finalDataConfig);
-        
         return false;
     }
 }
@@ -0,0 +1,24 @@
+package dev.fluffyworld.nxbrokenitems.listeners.components;
+
+/**
+ * What {@link BreakPipeline} does with breaks over its queue capacity or per tick limits
+ */
+public enum OverflowPolicy {
+    /** Keep them, over capacity the queue grows and over the tick limits they wait for a later tick */
+    DEFER,
+    /** Merge them into a waiting break of the same item for the same player, drop them at capacity otherwise */
+    COALESCE,
+    /** Drop and log them */
+    DROP;
+
+    public static OverflowPolicy fromConfig(String value) {
+        if (value == null) {
+            return DEFER;
+        }
+        return switch (value.toLowerCase()) {
+            case "coalesce" -> COALESCE;
+            case "drop" -> DROP;
+            default -> DEFER;
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package dev.fluffyworld.nxbrokenitems.listeners.components;
+
+import java.util.UUID;
+
+/**
+ * A component that keeps state per online player and must drop it when the player leaves
+ */
+public interface PlayerStateHolder {
+
+    void clearPlayerState(UUID playerUUID);
+
+    /**
+     * Get the number of per-player entries currently held
+     */
+    int getPlayerStateCount();
+
+    default String getPlayerStateName() {
+        return getClass().getSimpleName();
+    }
+}
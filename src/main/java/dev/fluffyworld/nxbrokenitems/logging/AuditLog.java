@@ -0,0 +1,224 @@
+package dev.fluffyworld.nxbrokenitems.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recovery and deletion log split into one segment per day: logs/yyyy-MM-dd.log.
+ * Segments of past days are compressed to .log.gz next to a .idx file listing the players they mention,
+ * so queries for one player skip days the player does not appear in.
+ * Each line is "action TAB player TAB entry".
+ */
+public final class AuditLog {
+
+    public static final String ACTION_RESTORED = "restored";
+    public static final String ACTION_DELETED = "deleted";
+
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final String COMPRESSED_EXTENSION = ".log.gz";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final long SETTLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * @param action {@link #ACTION_RESTORED}, {@link #ACTION_DELETED} or null for both
+     */
+    public record Query(String playerName, LocalDate from, LocalDate to, String action) {
+    }
+
+    private final File directory;
+    private final Logger logger;
+    private final AuditLogWriter writer;
+
+    public AuditLog(File directory, Logger logger, long syncIntervalMillis) {
+        this.directory = directory;
+        this.logger = logger;
+        this.writer = new AuditLogWriter(directory, logger, syncIntervalMillis);
+    }
+
+    /**
+     * Queue a line in today's segment
+     */
+    public void append(String action, String playerName, String entry) {
+        final String line = action + '\t' + playerName + '\t' + entry.replace('\t', ' ');
+        writer.append(LocalDate.now() + SEGMENT_EXTENSION, line);
+    }
+
+    /**
+     * Queue several lines of one player in today's segment as one batch
+     */
+    public void append(String action, String playerName, List<String> entries) {
+        final List<String> lines = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            lines.add(action + '\t' + playerName + '\t' + entry.replace('\t', ' '));
+        }
+        writer.append(LocalDate.now() + SEGMENT_EXTENSION, lines);
+    }
+
+    public void close(long timeout, TimeUnit unit) {
+        writer.close(timeout, unit);
+    }
+
+    /**
+     * Compress every segment of a past day and write its player index.
+     * Blocks on disk IO, call it off the server thread.
+     */
+    public void compressOldSegments() {
+        final LocalDate today = LocalDate.now();
+        final long settledBefore = System.currentTimeMillis() - SETTLE_MILLIS;
+        for (Map.Entry<LocalDate, File> segment : listSegments(SEGMENT_EXTENSION).entrySet()) {
+            final File file = segment.getValue();
+            if (!segment.getKey().isBefore(today) || file.lastModified() > settledBefore) {
+                continue;
+            }
+            try {
+                compress(segment.getKey(), file);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to compress audit log segment: " + file.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Stream the lines matching a query, oldest day first, stopping after maxLines matches.
+     * Blocks on disk IO, call it off the server thread.
+     *
+     * @return The number of matching lines passed to the consumer
+     */
+    public int query(Query query, int maxLines, Consumer<String> consumer) {
+        final String playerKey = query.playerName().toLowerCase(Locale.ROOT);
+        final Predicate<String[]> matches = fields -> fields.length == 3
+            && fields[1].equalsIgnoreCase(query.playerName())
+            && (query.action() == null || fields[0].equals(query.action()));
+
+        final SortedMap<LocalDate, File> compressed = listSegments(COMPRESSED_EXTENSION);
+        final SortedMap<LocalDate, File> open = listSegments(SEGMENT_EXTENSION);
+        final SortedSet<LocalDate> days = new TreeSet<>(compressed.keySet());
+        days.addAll(open.keySet());
+
+        int matched = 0;
+        for (LocalDate day : days.subSet(query.from(), query.to().plusDays(1))) {
+            final List<File> files = new ArrayList<>(2);
+            final File compressedFile = compressed.get(day);
+            if (compressedFile != null && indexContains(day, playerKey)) {
+                files.add(compressedFile);
+            }
+            if (open.containsKey(day)) {
+                files.add(open.get(day));
+            }
+
+            for (File file : files) {
+                try (BufferedReader reader = openSegment(file)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!matches.test(line.split("\t", 3))) {
+                            continue;
+                        }
+                        consumer.accept(line.substring(line.indexOf('\t', line.indexOf('\t') + 1) + 1));
+                        if (++matched >= maxLines) {
+                            return matched;
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Failed to read audit log segment: " + file.getName(), e);
+                }
+            }
+        }
+        return matched;
+    }
+
+    private void compress(LocalDate day, File segment) throws IOException {
+        final File compressed = new File(directory, day + COMPRESSED_EXTENSION);
+        final File tempFile = new File(directory, day + COMPRESSED_EXTENSION + ".tmp");
+        final Set<String> players = new TreeSet<>();
+
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+            // A line that arrived after the day was compressed ends up in a new segment, merge both
+            if (compressed.exists()) {
+                copyLines(compressed, output, players);
+            }
+            copyLines(segment, output, players);
+        }
+
+        Files.move(tempFile.toPath(), compressed.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeIndex(day, players);
+        Files.delete(segment.toPath());
+    }
+
+    private void copyLines(File source, Writer output, Set<String> players) throws IOException {
+        try (BufferedReader reader = openSegment(source)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", 3);
+                if (fields.length == 3) {
+                    players.add(fields[1].toLowerCase(Locale.ROOT));
+                }
+                output.write(line);
+                output.write('\n');
+            }
+        }
+    }
+
+    private void writeIndex(LocalDate day, Set<String> players) throws IOException {
+        final File index = new File(directory, day + INDEX_EXTENSION);
+        final File tempFile = new File(directory, day + INDEX_EXTENSION + ".tmp");
+        Files.write(tempFile.toPath(), players, StandardCharsets.UTF_8);
+        Files.move(tempFile.toPath(), index.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A segment without an index is always read
+     */
+    private boolean indexContains(LocalDate day, String playerKey) {
+        final File index = new File(directory, day + INDEX_EXTENSION);
+        if (!index.exists()) {
+            return true;
+        }
+        try {
+            return Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).contains(playerKey);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to read audit log index: " + index.getName(), e);
+            return true;
+        }
+    }
+
+    private BufferedReader openSegment(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        if (file.getName().endsWith(COMPRESSED_EXTENSION)) {
+            input = new GZIPInputStream(input);
+        }
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    private SortedMap<LocalDate, File> listSegments(String extension) {
+        final SortedMap<LocalDate, File> segments = new TreeMap<>();
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(extension));
+        if (files == null) {
+            return segments;
+        }
+
+        for (File file : files) {
+            final String name = file.getName();
+            try {
+                segments.put(LocalDate.parse(name.substring(0, name.length() - extension.length())), file);
+            } catch (DateTimeParseException ignored) {
+                // Not a segment
+            }
+        }
+        return segments;
+    }
+}
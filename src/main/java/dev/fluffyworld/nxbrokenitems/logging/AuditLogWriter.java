@@ -0,0 +1,197 @@
+package dev.fluffyworld.nxbrokenitems.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends audit lines to log files from a single background thread.
+ * Callers only enqueue a line, so logging never touches the disk on the server thread.
+ * Queued lines are written as soon as the writer wakes up and forced to disk every sync interval.
+ * Files that received nothing for a while are closed, so rotated segments are not held open.
+ */
+public final class AuditLogWriter {
+
+    private static final long IDLE_CLOSE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private record Line(String fileName, String text) {
+    }
+
+    private static final class Target {
+        private final FileOutputStream output;
+        private final Writer writer;
+        private boolean unsynced;
+        private long lastWrite = System.nanoTime();
+
+        private Target(File file) throws IOException {
+            this.output = new FileOutputStream(file, true);
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+    }
+
+    private final File folder;
+    private final Logger logger;
+    private final long syncIntervalNanos;
+    private final Queue<Line> queue = new ConcurrentLinkedQueue<>();
+    // Only touched by the writer thread
+    private final Map<String, Target> targets = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public AuditLogWriter(File folder, Logger logger, long syncIntervalMillis) {
+        this.folder = folder;
+        this.logger = logger;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(50L, syncIntervalMillis));
+        this.thread = new Thread(this::run, "NxBrokenItems-audit-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a line for the given log file, relative to the plugin folder
+     */
+    public void append(String fileName, String line) {
+        queue.offer(new Line(fileName, line));
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queue several lines for the given log file, waking the writer once
+     */
+    public void append(String fileName, List<String> lines) {
+        for (String line : lines) {
+            queue.offer(new Line(fileName, line));
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Write and sync everything still queued, waiting at most the given time
+     */
+    public void close(long timeout, TimeUnit unit) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Timed out waiting for " + queue.size() + " audit log lines");
+        }
+    }
+
+    private void run() {
+        long nextSync = System.nanoTime() + syncIntervalNanos;
+        while (running || !queue.isEmpty()) {
+            drain();
+
+            final long now = System.nanoTime();
+            if (now >= nextSync) {
+                sync();
+                nextSync = now + syncIntervalNanos;
+            }
+            if (running && queue.isEmpty()) {
+                LockSupport.parkNanos(this, nextSync - System.nanoTime());
+            }
+        }
+        sync();
+        closeTargets();
+    }
+
+    private void drain() {
+        Line line;
+        boolean wrote = false;
+        while ((line = queue.poll()) != null) {
+            final Target target = targetFor(line.fileName());
+            if (target == null) {
+                continue;
+            }
+            try {
+                target.writer.write(line.text());
+                target.writer.write(System.lineSeparator());
+                target.unsynced = true;
+                target.lastWrite = System.nanoTime();
+                wrote = true;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to write audit log: " + line.fileName(), e);
+            }
+        }
+
+        if (wrote) {
+            for (Map.Entry<String, Target> entry : targets.entrySet()) {
+                try {
+                    entry.getValue().writer.flush();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Failed to flush audit log: " + entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private void sync() {
+        final long now = System.nanoTime();
+        final Iterator<Map.Entry<String, Target>> iterator = targets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Target> entry = iterator.next();
+            final Target target = entry.getValue();
+            if (target.unsynced) {
+                try {
+                    target.writer.flush();
+                    target.output.getFD().sync();
+                    target.unsynced = false;
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Failed to sync audit log: " + entry.getKey(), e);
+                }
+            } else if (now - target.lastWrite > IDLE_CLOSE_NANOS) {
+                iterator.remove();
+                try {
+                    target.writer.close();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to close audit log: " + entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private Target targetFor(String fileName) {
+        final Target existing = targets.get(fileName);
+        if (existing != null) {
+            return existing;
+        }
+
+        final File file = new File(folder, fileName);
+        final File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        try {
+            final Target target = new Target(file);
+            targets.put(fileName, target);
+            return target;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to open audit log: " + fileName, e);
+            return null;
+        }
+    }
+
+    private void closeTargets() {
+        for (Map.Entry<String, Target> entry : targets.entrySet()) {
+            try {
+                entry.getValue().writer.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close audit log: " + entry.getKey(), e);
+            }
+        }
+        targets.clear();
+    }
+}
@@ -0,0 +1,45 @@
+package dev.fluffyworld.nxbrokenitems.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler for servers with a single main thread
+ */
+final class BukkitTaskScheduler implements TaskScheduler {
+
+    private final Plugin plugin;
+
+    BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public ScheduledTask runTimer(Runnable task, long delayTicks, long periodTicks) {
+        final BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        final BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task,
+            delayTicks, periodTicks);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    @Override
+    public boolean isFolia() {
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.fluffyworld.nxbrokenitems.scheduler;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler for Folia's region threads.
+ * The plugin compiles against the Spigot API, so the Folia schedulers are resolved by reflection once.
+ */
+final class FoliaTaskScheduler implements TaskScheduler {
+
+    private static final String REGIONIZED_SERVER = "io.papermc.paper.threadedregions.RegionizedServer";
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+    private final Method globalRunAtFixedRate;
+    private final Method asyncRunAtFixedRate;
+    private final Method entityGetScheduler;
+    private final Method entityRun;
+    private final Method taskCancel;
+
+    FoliaTaskScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        final Server server = plugin.getServer();
+        this.globalScheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(server);
+        this.asyncScheduler = Server.class.getMethod("getAsyncScheduler").invoke(server);
+        this.globalRunAtFixedRate = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler")
+            .getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        this.asyncRunAtFixedRate = Class.forName(SCHEDULER_PACKAGE + "AsyncScheduler")
+            .getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+        this.entityGetScheduler = Entity.class.getMethod("getScheduler");
+        this.entityRun = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler")
+            .getMethod("run", Plugin.class, Consumer.class, Runnable.class);
+        this.taskCancel = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask").getMethod("cancel");
+    }
+
+    static boolean isAvailable() {
+        try {
+            Class.forName(REGIONIZED_SERVER);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public ScheduledTask runTimer(Runnable task, long delayTicks, long periodTicks) {
+        // Folia rejects an initial delay below one tick
+        return wrap(invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer(task),
+            Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+
+    @Override
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return wrap(invoke(asyncRunAtFixedRate, asyncScheduler, plugin, consumer(task),
+            Math.max(0L, delayTicks) * MILLIS_PER_TICK, Math.max(1L, periodTicks) * MILLIS_PER_TICK,
+            TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired) {
+        final Object entityScheduler = invoke(entityGetScheduler, entity);
+        // A null task means the entity is already gone and neither callback will run
+        if (invoke(entityRun, entityScheduler, plugin, consumer(task), retired) == null) {
+            retired.run();
+        }
+    }
+
+    @Override
+    public boolean isFolia() {
+        return true;
+    }
+
+    private ScheduledTask wrap(Object foliaTask) {
+        return () -> invoke(taskCancel, foliaTask);
+    }
+
+    private static Consumer<Object> consumer(Runnable task) {
+        return foliaTask -> task.run();
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Folia scheduler call failed: " + method.getName(), e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Folia scheduler call failed: " + method.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package dev.fluffyworld.nxbrokenitems.scheduler;
+
+/**
+ * A repeating task started through {@link TaskScheduler}
+ */
+public interface ScheduledTask {
+
+    void cancel();
+}
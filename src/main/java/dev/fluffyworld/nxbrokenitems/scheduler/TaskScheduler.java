@@ -0,0 +1,48 @@
+package dev.fluffyworld.nxbrokenitems.scheduler;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.logging.Level;
+
+/**
+ * Schedules the plugin's tasks on the right thread for the server it runs on.
+ * On Folia global work runs on the global region, entity work on the thread that owns the entity
+ * and background work on the async scheduler. Elsewhere everything but background work runs on the main thread.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Run a task repeatedly on the global region, or the main thread
+     */
+    ScheduledTask runTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run a task repeatedly off the server threads
+     */
+    ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run a task on the thread that owns the entity, right away if that is the current thread
+     *
+     * @param retired Run instead if the entity was removed before the task could run
+     */
+    void runForEntity(Entity entity, Runnable task, Runnable retired);
+
+    boolean isFolia();
+
+    /**
+     * Create the scheduler for the running server, falling back to the Bukkit scheduler
+     * if the Folia schedulers cannot be resolved
+     */
+    static TaskScheduler create(Plugin plugin) {
+        if (FoliaTaskScheduler.isAvailable()) {
+            try {
+                return new FoliaTaskScheduler(plugin);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to resolve the Folia schedulers, using the Bukkit scheduler", e);
+            }
+        }
+        return new BukkitTaskScheduler(plugin);
+    }
+}
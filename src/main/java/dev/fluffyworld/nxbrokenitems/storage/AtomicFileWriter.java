@@ -0,0 +1,40 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces a file with new content so that a crash leaves either the old or the new file, never a partial one:
+ * the content goes to a temporary file that is forced to disk and then atomically moved over the target.
+ */
+final class AtomicFileWriter {
+
+    /**
+     * Writes the content, the stream is closed by {@link AtomicFileWriter}
+     */
+    @FunctionalInterface
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    static void write(File file, Content content) throws IOException {
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+                final BufferedOutputStream out = new BufferedOutputStream(fileOut);
+                content.writeTo(out);
+                out.flush();
+                fileOut.getChannel().force(true);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+    }
+}
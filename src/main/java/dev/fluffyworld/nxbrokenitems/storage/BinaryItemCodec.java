@@ -0,0 +1,198 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.ItemSummary;
+import dev.fluffyworld.nxbrokenitems.data.LazyItem;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary player data file.
+ * The file starts with a magic number and version, followed by one record per entry.
+ * Each record is an int length and a deflated body holding id, timestamp,
+ * blacklisted flag, the serialized item, the item fingerprint and the item summary:
+ * material, AdvancedEnchantments flag, plain display name, unbreaking level and cost multiplier key.
+ * Records written before fingerprints or summaries existed end early and get them computed on load,
+ * the summary from the profile the current settings give the item.
+ * Items of records that carry their summary are only deserialised when first needed.
+ * A record that cannot be decoded is handed to an {@link UnreadableRecordHandler} and skipped,
+ * only a damaged header or record framing fails the whole file.
+ */
+public final class BinaryItemCodec {
+
+    private static final int MAGIC = 0x4E584249;
+    private static final int VERSION = 1;
+
+    /**
+     * Receives the deflated bytes of a record that could not be decoded
+     */
+    @FunctionalInterface
+    interface UnreadableRecordHandler {
+        void accept(byte[] record, IOException cause);
+    }
+
+    private BinaryItemCodec() {
+    }
+
+    static List<BrokenItemEntry> read(File file, Function<ItemStack, ItemProfile> profiler,
+                                      UnreadableRecordHandler unreadable) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a broken item data file: " + file.getName());
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported data file version " + version + ": " + file.getName());
+            }
+
+            final int count = in.readInt();
+            final List<BrokenItemEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final byte[] compressed = new byte[in.readInt()];
+                in.readFully(compressed);
+                try {
+                    entries.add(decodeRecord(inflate(compressed), profiler));
+                } catch (IOException e) {
+                    unreadable.accept(compressed, e);
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Write entries through {@link AtomicFileWriter}, so a crash never leaves a partial file
+     */
+    public static void write(File file, List<BrokenItemEntry> entries) throws IOException {
+        AtomicFileWriter.write(file, stream -> {
+            final DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (BrokenItemEntry entry : entries) {
+                final byte[] compressed = deflate(encodeRecord(entry));
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            }
+            out.flush();
+        });
+    }
+
+    static byte[] encodeRecord(BrokenItemEntry entry) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(entry.getId());
+            out.writeLong(entry.getTimestamp());
+            out.writeBoolean(entry.isBlacklisted());
+            // Untouched items are written back as they were read
+            final byte[] storedBytes = entry.getSerializedItem();
+            final byte[] itemBytes = storedBytes != null ? storedBytes : serializeItem(entry.getItem());
+            out.writeInt(itemBytes.length);
+            out.write(itemBytes);
+            final ItemFingerprint fingerprint = entry.getFingerprint();
+            out.writeLong(fingerprint.high());
+            out.writeLong(fingerprint.low());
+            final ItemSummary summary = entry.getSummary();
+            out.writeUTF(summary.type().name());
+            out.writeBoolean(summary.advancedEnchantment());
+            out.writeUTF(summary.displayName());
+            out.writeInt(summary.unbreakingLevel());
+            out.writeUTF(summary.costMultiplierKey() != null ? summary.costMultiplierKey() : "");
+        }
+        return bytes.toByteArray();
+    }
+
+    static BrokenItemEntry decodeRecord(byte[] record, Function<ItemStack, ItemProfile> profiler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            final String id = in.readUTF();
+            final long timestamp = in.readLong();
+            final boolean blacklisted = in.readBoolean();
+            final byte[] itemBytes = new byte[in.readInt()];
+            in.readFully(itemBytes);
+            final ItemFingerprint fingerprint = in.available() >= 2 * Long.BYTES
+                ? new ItemFingerprint(in.readLong(), in.readLong())
+                : null;
+            final Material type = in.available() > 0 ? Material.matchMaterial(in.readUTF()) : null;
+            ItemSummary summary = null;
+            if (type != null && in.available() > 0) {
+                final boolean advancedEnchantment = in.readBoolean();
+                final String displayName = in.readUTF();
+                // Summaries stored before the pricing inputs are rebuilt from the item
+                if (in.available() > 0) {
+                    summary = new ItemSummary(type, advancedEnchantment, displayName, in.readInt(), in.readUTF());
+                }
+            }
+            if (fingerprint == null || summary == null) {
+                final ItemStack item = deserializeItem(itemBytes);
+                return new BrokenItemEntry(id, item, profiler.apply(item), timestamp, blacklisted, fingerprint);
+            }
+            return new BrokenItemEntry(id, LazyItem.serialized(itemBytes, BinaryItemCodec::deserializeItem), summary,
+                timestamp, blacklisted, fingerprint);
+        }
+    }
+
+    public static byte[] serializeItem(ItemStack item) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeObject(item);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ItemStack deserializeItem(byte[] itemBytes) throws IOException {
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(itemBytes))) {
+            return (ItemStack) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to read item", e);
+        }
+    }
+
+    static byte[] deflate(byte[] data) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] data) throws IOException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                final int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated item record");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt item record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
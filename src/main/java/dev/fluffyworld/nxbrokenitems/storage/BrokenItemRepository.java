@@ -0,0 +1,56 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Storage backend for players' broken items.
+ * Implementations are called from the persistence executor and must be safe to use from several threads.
+ */
+public interface BrokenItemRepository {
+
+    /**
+     * Get every entry of a player, oldest first
+     */
+    List<BrokenItemEntry> list(UUID playerUUID) throws StorageException;
+
+    /**
+     * Get a slice of a player's entries in the same order as {@link #list(UUID)}
+     */
+    List<BrokenItemEntry> page(UUID playerUUID, int offset, int limit) throws StorageException;
+
+    int count(UUID playerUUID) throws StorageException;
+
+    /**
+     * Get every player that has stored entries
+     */
+    Set<UUID> listPlayers() throws StorageException;
+
+    /**
+     * Insert or replace an entry with the same id
+     */
+    void save(UUID playerUUID, BrokenItemEntry entry) throws StorageException;
+
+    /**
+     * @return true if an entry with this id existed
+     */
+    boolean remove(UUID playerUUID, String entryId) throws StorageException;
+
+    /**
+     * Apply every change of a flush at once
+     */
+    default void apply(UUID playerUUID, ChangeSet changes) throws StorageException {
+        for (String entryId : changes.getRemovedIds()) {
+            remove(playerUUID, entryId);
+        }
+        for (BrokenItemEntry entry : changes.getSaved()) {
+            save(playerUUID, entry);
+        }
+    }
+
+    default void close() {
+    }
+}
@@ -0,0 +1,45 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Changes made to one player's entries since the last flush.
+ * Backends that store entries individually apply the saved and removed sets,
+ * file backends simply write the snapshot when it is complete.
+ */
+public final class ChangeSet {
+
+    private final Collection<BrokenItemEntry> saved;
+    private final Set<String> removedIds;
+    private final List<BrokenItemEntry> snapshot;
+
+    public ChangeSet(Collection<BrokenItemEntry> saved, Set<String> removedIds, List<BrokenItemEntry> snapshot) {
+        this.saved = saved;
+        this.removedIds = removedIds;
+        this.snapshot = snapshot;
+    }
+
+    public Collection<BrokenItemEntry> getSaved() {
+        return saved;
+    }
+
+    public Set<String> getRemovedIds() {
+        return removedIds;
+    }
+
+    /**
+     * Get every entry of the player after these changes,
+     * or null if the player's stored entries could not be loaded and the snapshot would drop them
+     */
+    public List<BrokenItemEntry> getSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isEmpty() {
+        return saved.isEmpty() && removedIds.isEmpty();
+    }
+}
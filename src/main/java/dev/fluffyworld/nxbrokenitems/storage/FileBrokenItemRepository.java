@@ -0,0 +1,427 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Stores one file per player under dataUser, either as YAML or in the compact binary format.
+ * With the binary format, a player's YAML file is migrated the first time it is read.
+ * When the journal is enabled, changes are appended to a <uuid>.journal file next to the data file
+ * and folded into the snapshot file once the journal grows past the compaction threshold.
+ * Files are placed according to {@link PlayerFileLayout}.
+ */
+public final class FileBrokenItemRepository implements BrokenItemRepository {
+
+    private static final String RESTORE_ITEM_SECTION = "restoreItem";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final int LOCK_STRIPES = 64;
+
+    private final PlayerFileLayout layout;
+    private final Logger logger;
+    private final StorageFormat format;
+    private final Function<ItemStack, ItemProfile> profiler;
+    private final boolean journalEnabled;
+    private final long compactThresholdBytes;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private volatile ExecutorService migrationPool;
+
+    /**
+     * @param profiler Analyses items read from records that were stored without a summary
+     */
+    public FileBrokenItemRepository(File dataUserFolder, Logger logger, StorageFormat format,
+                                    Function<ItemStack, ItemProfile> profiler,
+                                    boolean journalEnabled, long compactThresholdBytes, boolean sharded) {
+        this.layout = new PlayerFileLayout(dataUserFolder, sharded);
+        this.logger = logger;
+        this.format = format;
+        this.profiler = profiler;
+        this.journalEnabled = journalEnabled;
+        this.compactThresholdBytes = compactThresholdBytes;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<BrokenItemEntry> list(UUID playerUUID) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            return readAll(playerUUID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<BrokenItemEntry> page(UUID playerUUID, int offset, int limit) throws StorageException {
+        final List<BrokenItemEntry> entries = list(playerUUID);
+        if (offset >= entries.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(entries.subList(offset, Math.min(offset + limit, entries.size())));
+    }
+
+    @Override
+    public int count(UUID playerUUID) throws StorageException {
+        return list(playerUUID).size();
+    }
+
+    @Override
+    public Set<UUID> listPlayers() {
+        return layout.listPlayers();
+    }
+
+    @Override
+    public void save(UUID playerUUID, BrokenItemEntry entry) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            if (journalEnabled) {
+                appendToJournal(playerUUID, Collections.emptyList(), List.of(entry));
+                return;
+            }
+
+            final List<BrokenItemEntry> entries = readAll(playerUUID);
+            entries.removeIf(existing -> existing.getId().equals(entry.getId()));
+            entries.add(entry);
+            writeSnapshot(playerUUID, entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(UUID playerUUID, String entryId) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            final List<BrokenItemEntry> entries = readAll(playerUUID);
+            if (!entries.removeIf(existing -> existing.getId().equals(entryId))) {
+                return false;
+            }
+
+            if (journalEnabled) {
+                appendToJournal(playerUUID, List.of(entryId), Collections.emptyList());
+            } else {
+                writeSnapshot(playerUUID, entries);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void apply(UUID playerUUID, ChangeSet changes) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            if (journalEnabled) {
+                if (!changes.isEmpty()) {
+                    appendToJournal(playerUUID, changes.getRemovedIds(), changes.getSaved());
+                }
+            } else if (changes.getSnapshot() != null) {
+                writeSnapshot(playerUUID, changes.getSnapshot());
+            } else {
+                // The player's data was never loaded, apply the changes to what is stored instead
+                final Map<String, BrokenItemEntry> entries = new LinkedHashMap<>();
+                readAll(playerUUID).forEach(entry -> entries.put(entry.getId(), entry));
+                changes.getRemovedIds().forEach(entries::remove);
+                changes.getSaved().forEach(entry -> entries.put(entry.getId(), entry));
+                writeSnapshot(playerUUID, new ArrayList<>(entries.values()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rename a player's files once another backend holds their entries, so they are not listed or imported again
+     */
+    public void markImported(UUID playerUUID) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            layout.markImported(playerUUID);
+        } catch (IOException e) {
+            throw new StorageException("Failed to rename imported data files of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fold the journal of a player into a new snapshot and remove the journal.
+     * The journal is only removed once the snapshot is durably in place.
+     */
+    public void compact(UUID playerUUID) throws StorageException {
+        final ReentrantLock lock = lockPlayer(playerUUID);
+        try {
+            final PlayerJournal journal = getJournal(playerUUID);
+            if (!journal.exists()) {
+                return;
+            }
+            writeSnapshot(playerUUID, readAll(playerUUID));
+            journal.delete();
+        } catch (IOException e) {
+            throw new StorageException("Failed to compact journal of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void appendToJournal(UUID playerUUID, Collection<String> removedIds,
+                                 Collection<BrokenItemEntry> saved) throws StorageException {
+        final PlayerJournal journal = getJournal(playerUUID);
+        try {
+            journal.append(removedIds, saved);
+        } catch (IOException e) {
+            throw new StorageException("Failed to append to journal of player: " + playerUUID, e);
+        }
+
+        if (journal.size() > compactThresholdBytes) {
+            compact(playerUUID);
+        }
+    }
+
+    private List<BrokenItemEntry> readAll(UUID playerUUID) throws StorageException {
+        final Map<String, BrokenItemEntry> entries = new LinkedHashMap<>();
+        readSnapshot(playerUUID).forEach(entry -> entries.put(entry.getId(), entry));
+        try {
+            getJournal(playerUUID).replay(entries, logger, profiler,
+                (record, cause) -> quarantineRecord(layout.resolve(playerUUID, JOURNAL_EXTENSION), record, cause));
+        } catch (IOException e) {
+            throw new StorageException("Failed to replay journal of player: " + playerUUID, e);
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    private List<BrokenItemEntry> readSnapshot(UUID playerUUID) throws StorageException {
+        if (format == StorageFormat.BINARY) {
+            final File binaryFile = getPlayerDataFile(playerUUID, StorageFormat.BINARY);
+            if (binaryFile.exists()) {
+                return readBinary(binaryFile);
+            }
+        }
+
+        final File yamlFile = getPlayerDataFile(playerUUID, StorageFormat.YAML);
+        if (!yamlFile.exists()) {
+            return new ArrayList<>();
+        }
+
+        final List<BrokenItemEntry> entries = readYaml(yamlFile);
+        if (format == StorageFormat.BINARY) {
+            logger.info("Migrating data file of player " + playerUUID + " to the binary format");
+            writeSnapshot(playerUUID, entries);
+        }
+        return entries;
+    }
+
+    private void writeSnapshot(UUID playerUUID, List<BrokenItemEntry> entries) throws StorageException {
+        final File playerDataFile = getPlayerDataFile(playerUUID, format);
+        final File legacyFile = getPlayerDataFile(playerUUID, StorageFormat.YAML);
+        if (entries.isEmpty() && !playerDataFile.exists() && !legacyFile.exists()) {
+            return;
+        }
+
+        try {
+            final File parentDir = playerDataFile.getParentFile();
+            if (parentDir != null && !parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+
+            if (format == StorageFormat.BINARY) {
+                BinaryItemCodec.write(playerDataFile, entries);
+                if (legacyFile.exists() && !legacyFile.delete()) {
+                    logger.warning("Failed to remove migrated data file: " + legacyFile.getName());
+                }
+            } else {
+                final byte[] yaml = toYaml(entries).saveToString().getBytes(StandardCharsets.UTF_8);
+                AtomicFileWriter.write(playerDataFile, out -> out.write(yaml));
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to save data file for player: " + playerUUID, e);
+        }
+    }
+
+    private List<BrokenItemEntry> readBinary(File binaryFile) {
+        try {
+            return BinaryItemCodec.read(binaryFile, profiler, (record, cause) -> quarantineRecord(binaryFile, record, cause));
+        } catch (IOException e) {
+            final File corruptFile = new File(binaryFile.getParentFile(), binaryFile.getName() + ".corrupt");
+            logger.log(Level.SEVERE, "Failed to read data file " + binaryFile.getName()
+                + ", moving it to " + corruptFile.getName(), e);
+            if (!binaryFile.renameTo(corruptFile)) {
+                logger.warning("Failed to move corrupt data file: " + binaryFile.getName());
+            }
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Keep the bytes of a single unreadable record next to its file, the rest of the file still loads.
+     * The copy is named by a checksum of the record, so reading the same file again does not repeat it.
+     */
+    private void quarantineRecord(File sourceFile, byte[] record, IOException cause) {
+        final CRC32 crc = new CRC32();
+        crc.update(record);
+        final File corruptFile = new File(sourceFile.getParentFile(),
+            sourceFile.getName() + "." + Long.toHexString(crc.getValue()) + ".corrupt");
+        if (corruptFile.exists()) {
+            return;
+        }
+        logger.log(Level.SEVERE, "Skipping unreadable record in " + sourceFile.getName()
+            + ", moving it to " + corruptFile.getName(), cause);
+        try {
+            Files.write(corruptFile.toPath(), record);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to write corrupt record " + corruptFile.getName(), e);
+        }
+    }
+
+    private List<BrokenItemEntry> readYaml(File yamlFile) {
+        final List<BrokenItemEntry> entries = new ArrayList<>();
+        final FileConfiguration dataConfig = YamlConfiguration.loadConfiguration(yamlFile);
+        final ConfigurationSection restoreSection = dataConfig.getConfigurationSection(RESTORE_ITEM_SECTION);
+        if (restoreSection == null) {
+            return entries;
+        }
+
+        for (String key : restoreSection.getKeys(false)) {
+            final String path = RESTORE_ITEM_SECTION + "." + key;
+            ItemStack item = dataConfig.getItemStack(path + ".item");
+            if (item == null) {
+                item = dataConfig.getItemStack(path);
+            }
+            if (item == null) {
+                continue;
+            }
+
+            entries.add(new BrokenItemEntry(key, item, profiler.apply(item),
+                dataConfig.getLong(path + ".timestamp", 0),
+                dataConfig.getBoolean(path + ".blacklisted", false),
+                ItemFingerprint.fromHex(dataConfig.getString(path + ".fingerprint"))));
+        }
+        return entries;
+    }
+
+    private FileConfiguration toYaml(List<BrokenItemEntry> entries) {
+        final FileConfiguration dataConfig = new YamlConfiguration();
+        final ConfigurationSection restoreSection = dataConfig.createSection(RESTORE_ITEM_SECTION);
+        for (BrokenItemEntry entry : entries) {
+            final ConfigurationSection entrySection = restoreSection.createSection(entry.getId());
+            entrySection.set("item", entry.getItem());
+            entrySection.set("timestamp", entry.getTimestamp());
+            entrySection.set("blacklisted", entry.isBlacklisted());
+            entrySection.set("fingerprint", entry.getFingerprint().toHex());
+        }
+        return dataConfig;
+    }
+
+    /**
+     * Move players from the flat dataUser directory into the sharded layout on a background pool.
+     * Until a player is moved, every operation on that player moves it first.
+     */
+    public void startLayoutMigration(int threads) {
+        if (!layout.isSharded()) {
+            return;
+        }
+        final Thread migrationThread = new Thread(() -> migrateLayout(Math.max(1, threads)),
+            "NxBrokenItems-layout-migration");
+        migrationThread.setDaemon(true);
+        migrationThread.start();
+    }
+
+    @Override
+    public void close() {
+        final ExecutorService pool = migrationPool;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private void migrateLayout(int threads) {
+        final Set<UUID> legacyPlayers = layout.listLegacyPlayers();
+        if (legacyPlayers.isEmpty()) {
+            layout.markLegacyMigrated();
+            return;
+        }
+
+        logger.info("Moving " + legacyPlayers.size() + " players into the sharded dataUser layout");
+        final long start = System.currentTimeMillis();
+        final AtomicInteger failed = new AtomicInteger();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        migrationPool = pool;
+        for (UUID playerUUID : legacyPlayers) {
+            pool.execute(() -> {
+                try {
+                    lockPlayer(playerUUID).unlock();
+                } catch (StorageException e) {
+                    failed.incrementAndGet();
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            });
+        }
+        pool.shutdown();
+
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.HOURS)) {
+                logger.warning("dataUser layout migration did not finish, it continues on next start");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (failed.get() == 0) {
+            layout.markLegacyMigrated();
+            logger.info("Finished dataUser layout migration in " + (System.currentTimeMillis() - start) + " ms");
+        } else {
+            logger.warning(failed.get() + " players could not be moved to the sharded layout, they are retried on next start");
+        }
+    }
+
+    /**
+     * Lock a player and make sure its files are in their current location
+     */
+    private ReentrantLock lockPlayer(UUID playerUUID) throws StorageException {
+        final ReentrantLock lock = lockFor(playerUUID);
+        lock.lock();
+        try {
+            layout.moveLegacyFiles(playerUUID);
+        } catch (IOException e) {
+            lock.unlock();
+            throw new StorageException("Failed to move data files of player " + playerUUID + " to the sharded layout", e);
+        }
+        return lock;
+    }
+
+    private File getPlayerDataFile(UUID playerUUID, StorageFormat fileFormat) {
+        return layout.resolve(playerUUID, fileFormat.getExtension());
+    }
+
+    private PlayerJournal getJournal(UUID playerUUID) {
+        return new PlayerJournal(layout.resolve(playerUUID, JOURNAL_EXTENSION));
+    }
+
+    private ReentrantLock lockFor(UUID playerUUID) {
+        return locks[Math.floorMod(playerUUID.hashCode(), LOCK_STRIPES)];
+    }
+}
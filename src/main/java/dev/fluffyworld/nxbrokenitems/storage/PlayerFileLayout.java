@@ -0,0 +1,188 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Where a player's files live under dataUser.
+ * The sharded layout spreads players over dataUser/ab/cd/ directories chosen from a hash of the UUID,
+ * the flat layout keeps every file directly in dataUser as older versions did.
+ */
+final class PlayerFileLayout {
+
+    static final String[] PLAYER_FILE_EXTENSIONS = {".yml", ".dat", ".journal"};
+    static final String BACKUP_SUFFIX = ".bak";
+    static final String IMPORTED_SUFFIX = ".imported";
+
+    private final File root;
+    private final boolean sharded;
+    private volatile boolean legacyFilesPresent;
+
+    PlayerFileLayout(File root, boolean sharded) {
+        this.root = root;
+        this.sharded = sharded;
+        this.legacyFilesPresent = sharded;
+    }
+
+    boolean isSharded() {
+        return sharded;
+    }
+
+    File resolve(UUID playerUUID, String extension) {
+        if (!sharded) {
+            return legacy(playerUUID, extension);
+        }
+        final String shard = shardOf(playerUUID);
+        return new File(root, shard.substring(0, 2) + File.separator + shard.substring(2, 4)
+            + File.separator + playerUUID + extension);
+    }
+
+    File legacy(UUID playerUUID, String extension) {
+        return new File(root, playerUUID + extension);
+    }
+
+    /**
+     * Move a player's files from the flat directory into their shard.
+     * If the shard already holds files of the player, the newer set by modification time is kept
+     * and the other set is moved aside as {@value #BACKUP_SUFFIX} files in the shard.
+     * Callers must hold the player's lock so no read or write sees a half-moved player.
+     */
+    void moveLegacyFiles(UUID playerUUID) throws IOException {
+        if (!sharded || !legacyFilesPresent) {
+            return;
+        }
+        final long legacyModified = lastModified(playerUUID, false);
+        if (legacyModified < 0) {
+            return;
+        }
+        // Snapshot and journal belong together, so both sets are judged as a whole
+        final boolean keepLegacy = legacyModified >= lastModified(playerUUID, true);
+
+        for (String extension : PLAYER_FILE_EXTENSIONS) {
+            final File legacyFile = legacy(playerUUID, extension);
+            final File shardedFile = resolve(playerUUID, extension);
+            final File parentDir = shardedFile.getParentFile();
+            if (!parentDir.exists()) {
+                parentDir.mkdirs();
+            }
+
+            if (keepLegacy) {
+                if (shardedFile.exists()) {
+                    moveAside(shardedFile, shardedFile);
+                }
+                if (legacyFile.exists()) {
+                    Files.move(legacyFile.toPath(), shardedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            } else if (legacyFile.exists()) {
+                moveAside(legacyFile, shardedFile);
+            }
+        }
+    }
+
+    /**
+     * Rename a player's files in their current location with the {@value #IMPORTED_SUFFIX} suffix
+     */
+    void markImported(UUID playerUUID) throws IOException {
+        for (String extension : PLAYER_FILE_EXTENSIONS) {
+            final File file = resolve(playerUUID, extension);
+            if (file.exists()) {
+                Files.move(file.toPath(), new File(file.getParentFile(), file.getName() + IMPORTED_SUFFIX).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Get the newest modification time of a player's flat or sharded files, -1 if there are none
+     */
+    private long lastModified(UUID playerUUID, boolean shardedFiles) {
+        long newest = -1;
+        for (String extension : PLAYER_FILE_EXTENSIONS) {
+            final File file = shardedFiles ? resolve(playerUUID, extension) : legacy(playerUUID, extension);
+            if (file.exists()) {
+                newest = Math.max(newest, file.lastModified());
+            }
+        }
+        return newest;
+    }
+
+    private static void moveAside(File file, File shardedFile) throws IOException {
+        final File backup = new File(shardedFile.getParentFile(), shardedFile.getName() + BACKUP_SUFFIX);
+        Files.move(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Get the players that still have files directly in dataUser
+     */
+    Set<UUID> listLegacyPlayers() {
+        return collectPlayers(root.listFiles(File::isFile));
+    }
+
+    /**
+     * Called once the migration moved every flat file, so later lookups skip the flat directory
+     */
+    void markLegacyMigrated() {
+        legacyFilesPresent = false;
+    }
+
+    Set<UUID> listPlayers() {
+        final Set<UUID> players = collectPlayers(root.listFiles(File::isFile));
+        if (!sharded) {
+            return players;
+        }
+
+        final File[] firstLevel = root.listFiles(File::isDirectory);
+        if (firstLevel == null) {
+            return players;
+        }
+        for (File first : firstLevel) {
+            final File[] secondLevel = first.listFiles(File::isDirectory);
+            if (secondLevel == null) {
+                continue;
+            }
+            for (File second : secondLevel) {
+                players.addAll(collectPlayers(second.listFiles(File::isFile)));
+            }
+        }
+        return players;
+    }
+
+    private static Set<UUID> collectPlayers(File[] files) {
+        final Set<UUID> players = new HashSet<>();
+        if (files == null) {
+            return players;
+        }
+
+        for (File file : files) {
+            final String fileName = file.getName();
+            final int extensionStart = fileName.indexOf('.');
+            if (extensionStart <= 0 || fileName.endsWith(".tmp") || fileName.endsWith(".corrupt")
+                    || fileName.endsWith(BACKUP_SUFFIX) || fileName.endsWith(IMPORTED_SUFFIX)) {
+                continue;
+            }
+            try {
+                players.add(UUID.fromString(fileName.substring(0, extensionStart)));
+            } catch (IllegalArgumentException ignored) {
+                // Not a player file
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Two bytes of a mixed hash of the UUID as four hex digits
+     */
+    static String shardOf(UUID playerUUID) {
+        long hash = playerUUID.getMostSignificantBits() * 31 + playerUUID.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return String.format(Locale.ROOT, "%04x", (int) (hash & 0xFFFF));
+    }
+}
@@ -0,0 +1,159 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes to one player's entries, replayed over the last snapshot.
+ * Each record is an int length, a type byte, the payload and a CRC32 of type and payload,
+ * so a record torn by a crash is detected and cut off instead of corrupting the file.
+ */
+final class PlayerJournal {
+
+    private static final byte TYPE_ADD = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    private final File file;
+
+    PlayerJournal(File file) {
+        this.file = file;
+    }
+
+    boolean exists() {
+        return file.exists();
+    }
+
+    long size() {
+        return file.length();
+    }
+
+    /**
+     * Append removals and additions in that order and force them to disk
+     */
+    void append(Collection<String> removedIds, Collection<BrokenItemEntry> saved) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (String entryId : removedIds) {
+            writeRecord(out, TYPE_REMOVE, entryId.getBytes(StandardCharsets.UTF_8));
+        }
+        for (BrokenItemEntry entry : saved) {
+            writeRecord(out, TYPE_ADD, BinaryItemCodec.deflate(BinaryItemCodec.encodeRecord(entry)));
+        }
+
+        final File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Apply every intact record to the entries, in the order they were written.
+     * A torn or corrupt tail is truncated so later appends stay readable,
+     * an intact record whose entry cannot be decoded is handed to the handler and skipped.
+     */
+    void replay(Map<String, BrokenItemEntry> entries, Logger logger, Function<ItemStack, ItemProfile> profiler,
+                BinaryItemCodec.UnreadableRecordHandler unreadable) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final CRC32 crc = new CRC32();
+            while (true) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < 1 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+
+                final byte[] record = new byte[length];
+                final int checksum;
+                try {
+                    in.readFully(record);
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                applyRecord(entries, record, profiler, unreadable);
+                validLength += 4L + length + 4L;
+            }
+        }
+
+        if (validLength < file.length()) {
+            logger.warning("Truncating damaged tail of journal " + file.getName()
+                + " at " + validLength + " of " + file.length() + " bytes");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+    void delete() throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete journal " + file.getName());
+        }
+    }
+
+    private void applyRecord(Map<String, BrokenItemEntry> entries, byte[] record,
+                             Function<ItemStack, ItemProfile> profiler,
+                             BinaryItemCodec.UnreadableRecordHandler unreadable) throws IOException {
+        final byte[] payload = new byte[record.length - 1];
+        System.arraycopy(record, 1, payload, 0, payload.length);
+        switch (record[0]) {
+            case TYPE_ADD -> {
+                try {
+                    final BrokenItemEntry entry = BinaryItemCodec.decodeRecord(BinaryItemCodec.inflate(payload),
+                        profiler);
+                    entries.put(entry.getId(), entry);
+                } catch (IOException e) {
+                    unreadable.accept(payload, e);
+                }
+            }
+            case TYPE_REMOVE -> entries.remove(new String(payload, StandardCharsets.UTF_8));
+            default -> throw new IOException("Unknown journal record type " + record[0] + " in " + file.getName());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        out.writeInt(payload.length + 1);
+        out.writeByte(type);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+}
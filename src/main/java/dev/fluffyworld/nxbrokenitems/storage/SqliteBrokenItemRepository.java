@@ -0,0 +1,328 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+import dev.fluffyworld.nxbrokenitems.data.BrokenItemEntry;
+import dev.fluffyworld.nxbrokenitems.data.ItemFingerprint;
+import dev.fluffyworld.nxbrokenitems.data.ItemProfile;
+import dev.fluffyworld.nxbrokenitems.data.ItemSummary;
+import dev.fluffyworld.nxbrokenitems.data.LazyItem;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores every player's entries in one embedded SQLite database.
+ * The driver ships with the server, so no extra dependency is needed.
+ */
+public final class SqliteBrokenItemRepository implements BrokenItemRepository {
+
+    private static final String CREATE_TABLE = """
+        CREATE TABLE IF NOT EXISTS broken_items (
+            player_uuid TEXT NOT NULL,
+            entry_id TEXT NOT NULL,
+            timestamp INTEGER NOT NULL,
+            blacklisted INTEGER NOT NULL,
+            item BLOB NOT NULL,
+            fingerprint TEXT,
+            material TEXT,
+            advanced_enchantment INTEGER,
+            display_name TEXT,
+            unbreaking_level INTEGER,
+            cost_multiplier_key TEXT,
+            PRIMARY KEY (player_uuid, entry_id)
+        )""";
+    private static final String CREATE_PLAYER_TIME_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_broken_items_player_time ON broken_items (player_uuid, timestamp)";
+    private static final String CREATE_TIME_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_broken_items_time ON broken_items (timestamp)";
+
+    private static final String ADD_FINGERPRINT_COLUMN = "ALTER TABLE broken_items ADD COLUMN fingerprint TEXT";
+    private static final String ADD_MATERIAL_COLUMN = "ALTER TABLE broken_items ADD COLUMN material TEXT";
+    private static final String ADD_ADVANCED_ENCHANTMENT_COLUMN =
+        "ALTER TABLE broken_items ADD COLUMN advanced_enchantment INTEGER";
+    private static final String ADD_DISPLAY_NAME_COLUMN = "ALTER TABLE broken_items ADD COLUMN display_name TEXT";
+    private static final String ADD_UNBREAKING_LEVEL_COLUMN =
+        "ALTER TABLE broken_items ADD COLUMN unbreaking_level INTEGER";
+    private static final String ADD_COST_MULTIPLIER_KEY_COLUMN =
+        "ALTER TABLE broken_items ADD COLUMN cost_multiplier_key TEXT";
+
+    private static final String SELECT_COLUMNS =
+        "SELECT entry_id, timestamp, blacklisted, item, fingerprint, material, advanced_enchantment, display_name, "
+            + "unbreaking_level, cost_multiplier_key FROM broken_items ";
+    private static final String ORDER = " ORDER BY timestamp, rowid";
+    private static final String LIST = SELECT_COLUMNS + "WHERE player_uuid = ?" + ORDER;
+    private static final String PAGE = SELECT_COLUMNS + "WHERE player_uuid = ?" + ORDER + " LIMIT ? OFFSET ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM broken_items WHERE player_uuid = ?";
+    private static final String PLAYERS = "SELECT DISTINCT player_uuid FROM broken_items";
+    private static final String UPSERT = "INSERT OR REPLACE INTO broken_items "
+        + "(player_uuid, entry_id, timestamp, blacklisted, item, fingerprint, material, advanced_enchantment, "
+        + "display_name, unbreaking_level, cost_multiplier_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM broken_items WHERE player_uuid = ? AND entry_id = ?";
+    private static final String DELETE_ALL = "DELETE FROM broken_items";
+
+    private final Logger logger;
+    private final Function<ItemStack, ItemProfile> profiler;
+    private final Connection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param profiler Analyses items read from rows that were stored without a summary
+     */
+    public SqliteBrokenItemRepository(File databaseFile, Logger logger, Function<ItemStack, ItemProfile> profiler)
+            throws StorageException {
+        this.logger = logger;
+        this.profiler = profiler;
+        try {
+            Class.forName("org.sqlite.JDBC");
+            this.connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute(CREATE_TABLE);
+                if (!hasColumn(statement, "fingerprint")) {
+                    statement.execute(ADD_FINGERPRINT_COLUMN);
+                }
+                if (!hasColumn(statement, "material")) {
+                    statement.execute(ADD_MATERIAL_COLUMN);
+                }
+                if (!hasColumn(statement, "advanced_enchantment")) {
+                    statement.execute(ADD_ADVANCED_ENCHANTMENT_COLUMN);
+                    statement.execute(ADD_DISPLAY_NAME_COLUMN);
+                }
+                if (!hasColumn(statement, "unbreaking_level")) {
+                    statement.execute(ADD_UNBREAKING_LEVEL_COLUMN);
+                    statement.execute(ADD_COST_MULTIPLIER_KEY_COLUMN);
+                }
+                statement.execute(CREATE_PLAYER_TIME_INDEX);
+                statement.execute(CREATE_TIME_INDEX);
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new StorageException("Failed to open SQLite database " + databaseFile.getName(), e);
+        }
+    }
+
+    @Override
+    public List<BrokenItemEntry> list(UUID playerUUID) throws StorageException {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(LIST)) {
+            statement.setString(1, playerUUID.toString());
+            return readEntries(statement);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to list items of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<BrokenItemEntry> page(UUID playerUUID, int offset, int limit) throws StorageException {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(PAGE)) {
+            statement.setString(1, playerUUID.toString());
+            statement.setInt(2, limit);
+            statement.setInt(3, offset);
+            return readEntries(statement);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to page items of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int count(UUID playerUUID) throws StorageException {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(COUNT)) {
+            statement.setString(1, playerUUID.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to count items of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<UUID> listPlayers() throws StorageException {
+        lock.lock();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(PLAYERS)) {
+            final Set<UUID> players = new HashSet<>();
+            while (resultSet.next()) {
+                players.add(UUID.fromString(resultSet.getString(1)));
+            }
+            return players;
+        } catch (SQLException e) {
+            throw new StorageException("Failed to list players", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void save(UUID playerUUID, BrokenItemEntry entry) throws StorageException {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+            bindEntry(statement, playerUUID, entry);
+            statement.executeUpdate();
+        } catch (SQLException | IOException e) {
+            throw new StorageException("Failed to save item of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(UUID playerUUID, String entryId) throws StorageException {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(DELETE)) {
+            statement.setString(1, playerUUID.toString());
+            statement.setString(2, entryId);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new StorageException("Failed to remove item of player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void apply(UUID playerUUID, ChangeSet changes) throws StorageException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement(DELETE);
+                 PreparedStatement upsert = connection.prepareStatement(UPSERT)) {
+                for (String entryId : changes.getRemovedIds()) {
+                    delete.setString(1, playerUUID.toString());
+                    delete.setString(2, entryId);
+                    delete.addBatch();
+                }
+                for (BrokenItemEntry entry : changes.getSaved()) {
+                    bindEntry(upsert, playerUUID, entry);
+                    upsert.addBatch();
+                }
+                delete.executeBatch();
+                upsert.executeBatch();
+                connection.commit();
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw new StorageException("Failed to apply changes for player: " + playerUUID, e);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to apply changes for player: " + playerUUID, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove every player's entries, used to undo an import that did not finish
+     */
+    public void clear() throws StorageException {
+        lock.lock();
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(DELETE_ALL);
+        } catch (SQLException e) {
+            throw new StorageException("Failed to clear SQLite database", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close SQLite database", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void bindEntry(PreparedStatement statement, UUID playerUUID, BrokenItemEntry entry)
+            throws SQLException, IOException {
+        statement.setString(1, playerUUID.toString());
+        statement.setString(2, entry.getId());
+        statement.setLong(3, entry.getTimestamp());
+        statement.setInt(4, entry.isBlacklisted() ? 1 : 0);
+        final byte[] storedBytes = entry.getSerializedItem();
+        statement.setBytes(5, storedBytes != null ? storedBytes : BinaryItemCodec.serializeItem(entry.getItem()));
+        statement.setString(6, entry.getFingerprint().toHex());
+        final ItemSummary summary = entry.getSummary();
+        statement.setString(7, summary.type().name());
+        statement.setInt(8, summary.advancedEnchantment() ? 1 : 0);
+        statement.setString(9, summary.displayName());
+        statement.setInt(10, summary.unbreakingLevel());
+        statement.setString(11, summary.costMultiplierKey());
+    }
+
+    private static boolean hasColumn(Statement statement, String column) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("PRAGMA table_info(broken_items)")) {
+            while (resultSet.next()) {
+                if (column.equalsIgnoreCase(resultSet.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<BrokenItemEntry> readEntries(PreparedStatement statement) throws SQLException {
+        final List<BrokenItemEntry> entries = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                final String entryId = resultSet.getString(1);
+                final ItemFingerprint fingerprint = ItemFingerprint.fromHex(resultSet.getString(5));
+                final String material = resultSet.getString(6);
+                final Material type = material != null ? Material.matchMaterial(material) : null;
+                final int advancedEnchantment = resultSet.getInt(7);
+                final boolean hasSummary = !resultSet.wasNull();
+                final int unbreakingLevel = resultSet.getInt(9);
+                // Rows stored before the pricing inputs are rebuilt from the item
+                final ItemSummary summary = type != null && hasSummary && !resultSet.wasNull()
+                    ? new ItemSummary(type, advancedEnchantment != 0, resultSet.getString(8), unbreakingLevel,
+                        resultSet.getString(10))
+                    : null;
+                try {
+                    if (fingerprint != null && summary != null) {
+                        // Rows that carry their summary are deserialised when the item is first needed
+                        entries.add(new BrokenItemEntry(entryId,
+                            LazyItem.serialized(resultSet.getBytes(4), BinaryItemCodec::deserializeItem), summary,
+                            resultSet.getLong(2), resultSet.getInt(3) != 0, fingerprint));
+                        continue;
+                    }
+                    final ItemStack item = BinaryItemCodec.deserializeItem(resultSet.getBytes(4));
+                    entries.add(new BrokenItemEntry(entryId, item, profiler.apply(item),
+                        resultSet.getLong(2),
+                        resultSet.getInt(3) != 0,
+                        fingerprint));
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Skipping unreadable item " + entryId, e);
+                }
+            }
+        }
+        return entries;
+    }
+}
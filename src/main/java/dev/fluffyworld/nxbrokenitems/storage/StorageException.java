@@ -0,0 +1,12 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+public class StorageException extends Exception {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package dev.fluffyworld.nxbrokenitems.storage;
+
+public enum StorageFormat {
+    YAML(".yml"),
+    BINARY(".dat");
+
+    private final String extension;
+
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static StorageFormat fromConfig(String value) {
+        if (value == null) {
+            return YAML;
+        }
+        return switch (value.toLowerCase()) {
+            case "binary", "dat" -> BINARY;
+            default -> YAML;
+        };
+    }
+}